@@ -0,0 +1,137 @@
+package bench;
+
+import impl.Factory;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark comparing batch interpretation with interpreting each word alone, over batches of hierarchical keys with
+ * more or less sharing of prefixes, reporting the speedup against the fraction of input characters saved. It is run
+ * on a complete machine over a small alphabet, whose direct rows make each step about as cheap as comparing a
+ * character, and on a sparse machine over a larger alphabet, whose sorted and hashed rows make each step dearer; and
+ * with each batch both shuffled and already in order, which lets the batch skip sorting. Each batch is run both
+ * always sharing prefixes and in adaptive mode, which interprets each word alone where it judges that sorting and
+ * comparing prefixes would not pay.
+ *
+ */
+public final class BatchBenchmark {
+
+    private static final int STATES = 64;
+    private static final int WORDS = 100_000;
+    private static final int SEGMENTS = 8;
+    private static final int SEGMENT_LENGTH = 8;
+    private static final int ROUNDS = 5;
+
+    private BatchBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints one line per machine, branching factor of the key hierarchy and input order, with
+     * the fraction of characters saved by sharing prefixes and the speedup of each batch mode over single words.
+     * @param args unused
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d words of %d chars%n", WORDS, SEGMENTS * SEGMENT_LENGTH);
+        System.out.printf("%-7s %9s %8s %8s %10s %10s %11s %8s %8s%n", "machine", "branching", "order", "saved",
+                "single ms", "shared ms", "adaptive ms", "shared", "adaptive");
+        run("dense", machine(16, 1.0));
+        run("sparse", machine(64, 0.15));
+    }
+
+    /**
+     * Builds a random machine.
+     * @param alphabet the number of input characters
+     * @param density the chance that each state has a transition for each input
+     * @return the compiled machine
+     * @throws Exception should not be thrown
+     */
+    private static ICompiledMachine machine(int alphabet, double density) throws Exception {
+        List<ITransition> transitions = new RandomMachineGenerator(42).generate(STATES, alphabet, 'a', density);
+        IFiniteStateMachine fsm = Factory.getInstance().makeFiniteStateMachine();
+        fsm.setPartial(density < 1);
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        return fsm.compile();
+    }
+
+    /**
+     * Times interpreting batches of keys with each branching factor, shuffled and sorted, word by word and in both
+     * batch modes.
+     * @param name the name of the machine
+     * @param machine the compiled machine
+     * @throws Exception should not be thrown
+     */
+    private static void run(String name, ICompiledMachine machine) throws Exception {
+        for (int branching : new int[] {2, 8, 64, 0}) {
+            String[] words = keys(machine, branching, new Random(branching));
+            String[] ordered = words.clone();
+            Arrays.sort(ordered);
+            for (String[] batch : new String[][] {words, ordered}) {
+                String[] outputs = new String[batch.length];
+                long total = (long) WORDS * SEGMENTS * SEGMENT_LENGTH;
+                long stepped = machine.interpret(batch, outputs);
+                long single = Long.MAX_VALUE;
+                long shared = Long.MAX_VALUE;
+                long adaptive = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < batch.length; i++) {
+                        outputs[i] = machine.interpret(batch[i]);
+                    }
+                    single = Math.min(single, System.nanoTime() - start);
+                    start = System.nanoTime();
+                    machine.interpret(batch, outputs);
+                    shared = Math.min(shared, System.nanoTime() - start);
+                    start = System.nanoTime();
+                    machine.interpret(batch, outputs, ICompiledMachine.BatchMode.ADAPTIVE);
+                    adaptive = Math.min(adaptive, System.nanoTime() - start);
+                }
+                System.out.printf("%-7s %9s %8s %7.1f%% %10.2f %10.2f %11.2f %8.2f %8.2f%n", name,
+                        branching == 0 ? "random" : branching, batch == words ? "shuffled" : "sorted",
+                        100.0 * (total - stepped) / total, single / 1e6, shared / 1e6, adaptive / 1e6,
+                        (double) single / shared, (double) single / adaptive);
+            }
+        }
+    }
+
+    /**
+     * Builds hierarchical keys accepted by the machine, each a sequence of segments where every segment is one of a
+     * few choices determined by the segments before it, like the components of a URL path.
+     * @param machine the compiled machine
+     * @param branching the number of choices for each segment, or 0 for segments with no sharing at all
+     * @param random the source of randomness
+     * @return the keys, in random order
+     */
+    private static String[] keys(ICompiledMachine machine, int branching, Random random) {
+        String[] words = new String[WORDS];
+        char[] alphabet = machine.getAlphabet();
+        char[] word = new char[SEGMENTS * SEGMENT_LENGTH];
+        for (int w = 0; w < WORDS; w++) {
+            long path = 1;
+            int state = 0;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                path = path * 31 + (branching == 0 ? random.nextLong() : random.nextInt(branching));
+                Random choice = new Random(path);
+                for (int i = 0; i < SEGMENT_LENGTH; i++) {
+                    char input;
+                    do {
+                        input = alphabet[choice.nextInt(alphabet.length)];
+                    } while (machine.getNextState(state, input) < 0);
+                    word[segment * SEGMENT_LENGTH + i] = input;
+                    state = machine.getNextState(state, input);
+                }
+            }
+            words[w] = new String(word);
+        }
+        return words;
+    }
+
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the byte interpret modes with decoding ASCII input to a String, interpreting it and encoding
+ * the output back to bytes.
+ *
+ */
+public final class ByteInterpretBenchmark {
+
+    private static final int STATES = 16;
+    private static final int INPUT_BYTES = 16 << 20;
+    private static final int ROUNDS = 7;
+
+    private ByteInterpretBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints the throughput of each mode.
+     * @param args unused
+     * @throws NDTransitionException should not be thrown
+     * @throws BadTableException should not be thrown
+     * @throws BadInputException should not be thrown
+     */
+    public static void main(String[] args) throws NDTransitionException, BadTableException, BadInputException {
+        Random random = new Random(42);
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        for (int state = 0; state < STATES; state++) {
+            for (char input = ' '; input <= '~'; input++) {
+                char output = (char) (' ' + random.nextInt(95));
+                fsm.addTransition(factory.makeTransition(state, input, output, random.nextInt(STATES)));
+            }
+        }
+        byte[] input = new byte[INPUT_BYTES];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (' ' + random.nextInt(95));
+        }
+        ByteBuffer directIn = ByteBuffer.allocateDirect(input.length).put(input).flip();
+        ByteBuffer directOut = ByteBuffer.allocateDirect(input.length);
+        byte[] expected = fsm.interpret(new String(input, StandardCharsets.ISO_8859_1)).getBytes(StandardCharsets.ISO_8859_1);
+
+        long string = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        long direct = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            byte[] viaString = fsm.interpret(new String(input, StandardCharsets.ISO_8859_1)).getBytes(StandardCharsets.ISO_8859_1);
+            string = Math.min(string, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            byte[] viaBytes = fsm.interpret(input);
+            bytes = Math.min(bytes, System.nanoTime() - start);
+
+            directIn.rewind();
+            directOut.clear();
+            start = System.nanoTime();
+            fsm.interpret(directIn, directOut);
+            direct = Math.min(direct, System.nanoTime() - start);
+
+            if (!Arrays.equals(expected, viaString) || !Arrays.equals(expected, viaBytes) || !directOut.flip().equals(ByteBuffer.wrap(expected))) {
+                throw new IllegalStateException("byte modes disagree with the String mode");
+            }
+        }
+        report("String decode/interpret/encode", string);
+        report("byte[]", bytes);
+        report("direct ByteBuffer", direct);
+    }
+
+    /**
+     * Prints the throughput of one mode.
+     * @param mode the name of the mode
+     * @param nanos the best time taken to interpret the input
+     */
+    private static void report(String mode, long nanos) {
+        System.out.printf("%-31s %7.1f MB/s%n", mode, INPUT_BYTES * 1e3 / nanos);
+    }
+
+}
@@ -0,0 +1,492 @@
+package bench;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import impl.FiniteStateMachineProcessor;
+import interfaces.ICompiledMachine;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMachineRegistry;
+import interfaces.IMultiScanner;
+import interfaces.INondeterministicMachine;
+import interfaces.IRunInterpreter;
+import interfaces.ITransition;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load-test harness which runs the same inputs through every interpretation engine of one machine and checks that
+ * they agree, either on the output or on the offset of the first input without a transition. Run as a program, it
+ * checks random machines from {@link RandomMachineGenerator} and then drives one engine from increasing numbers of
+ * threads, checking every call against the outcome of its word run alone and printing a scaling report of throughput
+ * and latency. Every number in the report is determined by the
+ * arguments apart from the timings, so reports from different builds can be compared line by line.
+ *
+ */
+public final class DifferentialHarness {
+
+    private static final int MACHINES = 20;
+    private static final int WORDS_PER_MACHINE = 200;
+    private static final int MAX_WORD_LENGTH = 200;
+    private static final double NOISE = 0.01;
+    private static final int LOAD_WORDS = 4096;
+    private static final int LOAD_WORD_LENGTH = 256;
+    private static final int CALLS_PER_THREAD = 20_000;
+    private static final Set<String> SERIALIZED = Set.of("nfa"); /** The engines whose calls are serialized by a lock. */
+
+    /**
+     * An interpretation engine under test.
+     */
+    @FunctionalInterface
+    private interface Engine {
+
+        /**
+         * Interprets the given input.
+         * @param input the input sequence/word
+         * @return the output sequence/word
+         * @throws Exception if the engine fails, which is a BadInputException for input without a transition
+         */
+        String interpret(String input) throws Exception;
+    }
+
+    private final IFiniteStateMachine fsm; /** The FSM built from the transitions. */
+    private final Map<String, Engine> engines; /** The engines under test by name, in the order they are reported. */
+
+    /**
+     * Returns the names of the engines under test.
+     * @return the engine names, in the order they are reported
+     */
+    public List<String> getEngines() {
+        return List.copyOf(this.engines.keySet());
+    }
+
+    /**
+     * Runs the given input through every engine.
+     * @param input the input sequence/word
+     * @return the outcome of each engine by name: the output, or the offset of the failure for input without a transition
+     */
+    public Map<String, String> run(String input) {
+        Map<String, String> outcomes = new LinkedHashMap<>();
+        for (Map.Entry<String, Engine> engine : this.engines.entrySet()) {
+            outcomes.put(engine.getKey(), outcome(engine.getValue(), input));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Runs the given input through one engine.
+     * @param engine the engine
+     * @param input the input sequence/word
+     * @return the output, or the offset of the failure for input without a transition, or the error the engine threw
+     */
+    private static String outcome(Engine engine, String input) {
+        try {
+            return engine.interpret(input);
+        } catch (BadInputException e) {
+            return "BadInputException at " + e.getOffset();
+        } catch (Exception e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * Interprets the inputs as one batch in every batch mode, both in the order given and sorted, and checks that each
+     * output agrees with interpreting that input alone.
+     * @param inputs the input sequences/words
+     * @return true if every output of the batch matches and false otherwise
+     * @throws BadTableException should not be thrown, since the table was checked when the harness was built
+     */
+    public boolean batchAgrees(String[] inputs) throws BadTableException {
+        String[] sorted = inputs.clone();
+        Arrays.sort(sorted);
+        for (String[] batch : new String[][] {inputs, sorted}) {
+            for (ICompiledMachine.BatchMode mode : ICompiledMachine.BatchMode.values()) {
+                String[] outputs = new String[batch.length];
+                this.fsm.compile().interpret(batch, outputs, mode);
+                for (int i = 0; i < batch.length; i++) {
+                    String expected;
+                    try {
+                        expected = this.fsm.interpret(batch[i]);
+                    } catch (BadInputException e) {
+                        expected = null;
+                    }
+                    if (!Objects.equals(expected, outputs[i])) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether every engine had the same outcome.
+     * @param outcomes the outcomes returned by {@link #run(String)}
+     * @return true if all the outcomes are equal and false otherwise
+     */
+    public static boolean agree(Map<String, String> outcomes) {
+        return outcomes.values().stream().distinct().count() <= 1;
+    }
+
+    /**
+     * Runs the differential check and then the scaling report.
+     * @param args optionally the seed, number of states, alphabet size, density, maximum thread count and the engine
+     *             to load, in that order
+     * @throws Exception if a machine cannot be built, a load thread fails or a call under load has a different outcome
+     */
+    public static void main(String[] args) throws Exception {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        int states = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int alphabet = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        double density = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        int maxThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        String loaded = args.length > 5 ? args[5] : "fsm";
+        System.out.printf("seed=%d states=%d alphabet=%d density=%.2f%n", seed, states, alphabet, density);
+
+        RandomMachineGenerator generator = new RandomMachineGenerator(seed);
+        int checked = 0;
+        int failures = 0;
+        int mismatches = 0;
+        for (int machine = 0; machine < MACHINES; machine++) {
+            List<ITransition> transitions = generator.generate(states, alphabet, 'a', density);
+            DifferentialHarness harness = new DifferentialHarness(transitions, density < 1);
+            String[] batch = new String[WORDS_PER_MACHINE];
+            for (int word = 0; word < WORDS_PER_MACHINE; word++) {
+                String input = generator.walk(transitions, word % MAX_WORD_LENGTH, NOISE);
+                batch[word] = input;
+                Map<String, String> outcomes = harness.run(input);
+                checked++;
+                if (outcomes.values().iterator().next().startsWith("BadInputException")) {
+                    failures++;
+                }
+                if (!agree(outcomes)) {
+                    if (mismatches++ == 0) {
+                        System.out.printf("mismatch on machine %d, input %s%n", machine, input);
+                        outcomes.forEach((engine, outcome) -> System.out.printf("  %-10s %s%n", engine, outcome));
+                    }
+                }
+            }
+            if (!harness.batchAgrees(batch)) {
+                if (mismatches++ == 0) {
+                    System.out.printf("batch mismatch on machine %d%n", machine);
+                }
+            }
+        }
+        System.out.printf("differential: %d machines, %d words (%d rejected), %d mismatches%n",
+                MACHINES, checked, failures, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+
+        List<ITransition> transitions = generator.generate(states, alphabet, 'a', density);
+        DifferentialHarness harness = new DifferentialHarness(transitions, density < 1);
+        String[] words = new String[LOAD_WORDS];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = generator.walk(transitions, LOAD_WORD_LENGTH, 0);
+        }
+        Engine engine = harness.engines.get(loaded);
+        if (engine == null) {
+            throw new IllegalArgumentException("unknown engine " + loaded + ", expected one of " + harness.getEngines());
+        }
+        String[] expected = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            expected[i] = outcome(engine, words[i]);
+        }
+        load(engine, words, expected, 1);
+        System.out.printf("scaling of %s over %d words of %d chars, %d calls per thread%n",
+                loaded, LOAD_WORDS, LOAD_WORD_LENGTH, CALLS_PER_THREAD);
+        if (SERIALIZED.contains(loaded)) {
+            System.out.printf("%s is single-threaded: its calls hold one lock, so the speedup measures contention%n", loaded);
+        }
+        System.out.printf("%7s %12s %10s %8s %10s %10s%n", "threads", "calls/s", "Mchars/s", "speedup", "p50 us", "p99 us");
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] latencies = new long[threads * CALLS_PER_THREAD];
+            long elapsed = load(engine, words, expected, threads, latencies);
+            Arrays.sort(latencies);
+            double calls = latencies.length * 1e9 / elapsed;
+            if (threads == 1) {
+                single = calls;
+            }
+            System.out.printf("%7d %12.0f %10.1f %8.2f %10.2f %10.2f%n", threads, calls, calls * LOAD_WORD_LENGTH / 1e6,
+                    calls / single, latencies[latencies.length / 2] / 1e3, latencies[(int) (latencies.length * 0.99)] / 1e3);
+        }
+    }
+
+    /**
+     * Runs the engine from the given number of threads without recording latencies, to warm it up.
+     * @param engine the engine to load
+     * @param words the input words, which every thread cycles through from a different starting point
+     * @param expected the outcome of each word when run alone, as returned by {@link #outcome(Engine, String)}
+     * @param threads the number of threads
+     * @throws Exception if a thread fails or a call has a different outcome from the word run alone
+     */
+    private static void load(Engine engine, String[] words, String[] expected, int threads) throws Exception {
+        load(engine, words, expected, threads, new long[threads * CALLS_PER_THREAD]);
+    }
+
+    /**
+     * Runs the engine from the given number of threads, each making the same number of calls once all have started
+     * and checking the outcome of every call against the outcome of its word run alone.
+     * @param engine the engine to load
+     * @param words the input words, which every thread cycles through from a different starting point
+     * @param expected the outcome of each word when run alone, as returned by {@link #outcome(Engine, String)}
+     * @param threads the number of threads
+     * @param latencies filled with the time taken by each call in nanoseconds
+     * @return the time from the start of the first call to the end of the last in nanoseconds
+     * @throws Exception if a thread fails or a call has a different outcome from the word run alone
+     */
+    private static long load(Engine engine, String[] words, String[] expected, int threads, long[] latencies) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t * CALLS_PER_THREAD;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    for (int call = 0; call < CALLS_PER_THREAD; call++) {
+                        int word = (first + call) % words.length;
+                        long start = System.nanoTime();
+                        String outcome = outcome(engine, words[word]);
+                        latencies[first + call] = System.nanoTime() - start;
+                        if (!outcome.equals(expected[word])) {
+                            throw new IllegalStateException("word " + word + " under load with " + threads
+                                    + " threads gave " + outcome + " instead of " + expected[word]);
+                        }
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Runs the input through the compiled machine using small buffers, as a caller streaming input would.
+     * @param machine the compiled machine
+     * @param input the input sequence/word
+     * @return the output sequence/word
+     * @throws BadInputException if an input character has no transition
+     */
+    private static String buffered(ICompiledMachine machine, String input) throws BadInputException {
+        CharBuffer in = CharBuffer.wrap(input.toCharArray());
+        CharBuffer out = CharBuffer.allocate(7);
+        StringBuilder output = new StringBuilder(input.length());
+        int state = 0;
+        while (in.hasRemaining()) {
+            state = machine.interpret(state, in, out);
+            output.append(out.flip());
+            out.clear();
+        }
+        return output.toString();
+    }
+
+    /**
+     * Runs the input through the byte array and direct ByteBuffer modes of the FSM, checking that they agree.
+     * @param fsm the FSM
+     * @param input the input sequence/word, all of whose characters fit in a byte
+     * @param direct true to use direct buffers and false to use byte arrays
+     * @return the output sequence/word
+     * @throws BadTableException if the outputs do not fit in a byte
+     * @throws BadInputException if an input character has no transition
+     */
+    private static String bytes(IFiniteStateMachine fsm, String input, boolean direct) throws BadTableException, BadInputException {
+        byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+        if (!direct) {
+            return new String(fsm.interpret(bytes), StandardCharsets.ISO_8859_1);
+        }
+        ByteBuffer in = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        ByteBuffer out = ByteBuffer.allocateDirect(bytes.length);
+        fsm.interpret(in, out);
+        byte[] output = new byte[out.flip().remaining()];
+        out.get(output);
+        return new String(output, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Runs the input through the run interpreter, encoding each run of equal characters as one run.
+     * @param runs the run interpreter, which is reset first
+     * @param input the input sequence/word
+     * @return the output sequence/word
+     * @throws BadInputException if an input character has no transition
+     */
+    private static String runLength(IRunInterpreter runs, String input) throws BadInputException {
+        runs.reset();
+        for (int start = 0, end; start < input.length(); start = end) {
+            end = start + 1;
+            while (end < input.length() && input.charAt(end) == input.charAt(start)) {
+                end++;
+            }
+            runs.addRun(input.charAt(start), end - start);
+        }
+        return runs.getOutput();
+    }
+
+    /**
+     * Runs the input through a new FSM processor, publishing it in chunks whose size depends on the input length.
+     * @param fsm the FSM
+     * @param input the input sequence/word
+     * @return the output sequence/word
+     * @throws Exception the error signalled by the processor, which is a BadInputException for input without a transition
+     */
+    private static String stream(IFiniteStateMachine fsm, String input) throws Exception {
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, 16);
+        StringBuilder output = new StringBuilder(input.length());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        processor.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(CharBuffer buffer) {
+                output.append(buffer);
+                processor.release(buffer);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure.set(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        int chunk = 1 + input.length() % 13;
+        for (int start = 0; start < input.length(); start += chunk) {
+            processor.onNext(CharBuffer.wrap(input, start, Math.min(input.length(), start + chunk)));
+        }
+        processor.onComplete();
+        if (failure.get() instanceof Exception) {
+            throw (Exception) failure.get();
+        }
+        return output.toString();
+    }
+
+    /**
+     * Builds an FSM with the same transitions as the machine under test but echoing each input as its output, which
+     * differs from the machine under test but shares its alphabet and its bad input.
+     * @param transitions the transitions of the machine under test
+     * @param partial true if the machine may be missing inputs
+     * @return the FSM
+     * @throws NDTransitionException if the transitions are not deterministic
+     */
+    private static IFiniteStateMachine echo(List<ITransition> transitions, boolean partial) throws NDTransitionException {
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine echo = factory.makeFiniteStateMachine();
+        echo.setPartial(partial);
+        for (ITransition transition : transitions) {
+            echo.addTransition(factory.makeTransition(transition.getCurrentState(), transition.getInput(),
+                    transition.getInput(), transition.getNextState()));
+        }
+        return echo;
+    }
+
+    /**
+     * Constructor which builds every engine for the machine with the given transitions. The byte modes are only
+     * included when every input and output character fits in a byte. A separate copy of the FSM is interned, so that
+     * the FSM under test keeps its own compiled machine and the copy runs on the shared one. The run interpreter holds the input of the call
+     * in progress, so each thread calling the runs engine is given its own.
+     * @param transitions the transitions of a deterministic machine, the first of which leaves the initial state
+     * @param partial true if the machine may be missing inputs
+     * @throws NDTransitionException if the transitions are not deterministic
+     * @throws BadTableException if the transition table is bad
+     */
+    public DifferentialHarness(List<ITransition> transitions, boolean partial) throws NDTransitionException, BadTableException {
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        this.fsm = fsm;
+        IFiniteStateMachine copy = factory.makeFiniteStateMachine();
+        INondeterministicMachine nfa = factory.makeNondeterministicMachine();
+        boolean latin1 = true;
+        fsm.setPartial(partial);
+        copy.setPartial(partial);
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+            copy.addTransition(transition);
+            nfa.addTransition(transition);
+            latin1 &= transition.getInput() <= 0xFF && transition.getOutput() <= 0xFF;
+        }
+        ICompiledMachine compiled = fsm.compile();
+        ICompiledMachine minimized = compiled.minimize();
+        IMachineRegistry registry = factory.makeMachineRegistry();
+        ICompiledMachine interned = registry.intern(copy);
+
+        this.engines = new LinkedHashMap<>();
+        this.engines.put("fsm", fsm::interpret);
+        this.engines.put("compiled", compiled::interpret);
+        this.engines.put("minimized", minimized::interpret);
+        this.engines.put("interned", interned::interpret);
+        this.engines.put("shared", copy::interpret);
+        this.engines.put("buffered", input -> buffered(compiled, input));
+        this.engines.put("consumer", input -> {
+            char[] output = new char[input.length()];
+            fsm.interpret(input, (offset, out) -> output[offset] = out);
+            return new String(output);
+        });
+        if (latin1) {
+            this.engines.put("bytes", input -> bytes(fsm, input, false));
+            this.engines.put("direct", input -> bytes(fsm, input, true));
+        }
+        ThreadLocal<IRunInterpreter> runs = new ThreadLocal<>();
+        this.engines.put("runs", input -> {
+            IRunInterpreter interpreter = runs.get();
+            if (interpreter == null) {
+                interpreter = factory.makeRunInterpreter(fsm);
+                runs.set(interpreter);
+            }
+            return runLength(interpreter, input);
+        });
+        this.engines.put("nfa", nfa::interpret);
+        this.engines.put("processor", input -> stream(fsm, input));
+        IMultiScanner scanner = factory.makeMultiScanner(List.of(fsm, echo(transitions, partial), fsm));
+        this.engines.put("multi", input -> {
+            long[] offsets = new long[3];
+            String output = scanner.interpret(input, offsets)[2];
+            if (output == null) {
+                throw new BadInputException(offsets[2]);
+            }
+            return output;
+        });
+    }
+
+}
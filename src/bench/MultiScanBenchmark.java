@@ -0,0 +1,107 @@
+package bench;
+
+import impl.Factory;
+import interfaces.ICompiledMachine;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMultiScanner;
+import interfaces.ITransition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark comparing a single-pass scan of many machines with calling interpret on each machine in turn, over the
+ * same input, against the number of machines. It is run with every rule set distinct, and with rule sets repeated
+ * under different state numbers as happens when several callers load the same rules, which the scanner merges.
+ *
+ */
+public final class MultiScanBenchmark {
+
+    private static final int STATES = 32;
+    private static final int ALPHABET = 26;
+    private static final int INPUT_LENGTH = 200_000;
+    private static final int ROUNDS = 20;
+
+    private MultiScanBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints one line per number of machines and kind of rule set.
+     * @param args unused
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        RandomMachineGenerator generator = new RandomMachineGenerator(42);
+        List<List<ITransition>> rules = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rules.add(generator.generate(STATES, ALPHABET, 'a', 1.0));
+        }
+        String input = generator.walk(rules.get(0), INPUT_LENGTH, 0.0);
+        System.out.printf("input of %d chars, %d-state machines over %d inputs%n", INPUT_LENGTH, STATES, ALPHABET);
+        System.out.printf("%-8s %8s %8s %12s %12s %8s %14s%n", "rules", "machines", "distinct", "separate ms", "scan ms", "speedup", "scan ns/char");
+        for (boolean repeated : new boolean[] {false, true}) {
+            for (int count : new int[] {1, 5, 10, 20, 50}) {
+                List<IFiniteStateMachine> fsms = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    fsms.add(machine(rules.get(repeated ? i % Math.max(1, count / 5) : i), i));
+                }
+                run(repeated ? "repeated" : "distinct", fsms, input);
+            }
+        }
+    }
+
+    /**
+     * Builds an FSM from the given rules, offsetting its state numbers so that repeated rules are not identical.
+     * @param transitions the rules
+     * @param shift the amount added to every state number
+     * @return the FSM
+     * @throws Exception should not be thrown
+     */
+    private static IFiniteStateMachine machine(List<ITransition> transitions, int shift) throws Exception {
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(factory.makeTransition(transition.getCurrentState() + shift * 1000, transition.getInput(),
+                    transition.getOutput(), transition.getNextState() + shift * 1000));
+        }
+        return fsm;
+    }
+
+    /**
+     * Times both ways of running the machines over the input, keeping the best of several rounds.
+     * @param name the kind of rule set
+     * @param fsms the FSMs
+     * @param input the input
+     * @throws Exception should not be thrown
+     */
+    private static void run(String name, List<IFiniteStateMachine> fsms, String input) throws Exception {
+        List<ICompiledMachine> compiled = new ArrayList<>();
+        for (IFiniteStateMachine fsm : fsms) {
+            compiled.add(fsm.compile());
+        }
+        IMultiScanner scanner = Factory.getInstance().makeMultiScanner(fsms);
+        long separate = Long.MAX_VALUE;
+        long scanned = Long.MAX_VALUE;
+        long check = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (ICompiledMachine machine : compiled) {
+                check += machine.interpret(input).charAt(0);
+            }
+            separate = Math.min(separate, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (String output : scanner.interpret(input)) {
+                check -= output.charAt(0);
+            }
+            scanned = Math.min(scanned, System.nanoTime() - start);
+        }
+        if (check != 0) {
+            throw new IllegalStateException("scanner output differs from separate interpretation");
+        }
+        System.out.printf("%-8s %8d %8d %12.2f %12.2f %8.2f %14.2f%n", name, fsms.size(), scanner.getDistinctCount(),
+                separate / 1e6, scanned / 1e6, (double) separate / scanned, (double) scanned / input.length());
+    }
+
+}
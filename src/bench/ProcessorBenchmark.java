@@ -0,0 +1,125 @@
+package bench;
+
+import impl.Factory;
+import impl.FiniteStateMachineProcessor;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the FSM stream processor behind a SubmissionPublisher, publishing chunks of varying size. It reports
+ * the throughput for a subscriber which requests everything up front, and for one which requests a single buffer at
+ * a time and spends a fixed time on each, where the processor's backpressure sets the pace.
+ *
+ */
+public final class ProcessorBenchmark {
+
+    private static final int FAST_INPUT = 4_000_000;
+    private static final int SLOW_INPUT = 200_000;
+    private static final int SLOW_BUFFER = 64;
+    private static final long SLOW_PAUSE_NANOS = 20_000;
+    private static final int ROUNDS = 5;
+
+    private ProcessorBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints one line per subscriber.
+     * @param args unused
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'e', 1));
+        run("fast", fsm, FAST_INPUT, 8192, Long.MAX_VALUE, 0);
+        run("slow", fsm, SLOW_INPUT, SLOW_BUFFER, 1, SLOW_PAUSE_NANOS);
+    }
+
+    /**
+     * Times publishing random input through a new processor to a subscriber, keeping the best of several rounds.
+     * @param name the name of the subscriber
+     * @param fsm the FSM
+     * @param length the number of input characters
+     * @param bufferSize the processor's output buffer size
+     * @param batch the number of buffers the subscriber requests at a time
+     * @param pauseNanos the time the subscriber spends on each buffer
+     * @throws Exception should not be thrown
+     */
+    private static void run(String name, IFiniteStateMachine fsm, int length, int bufferSize, long batch, long pauseNanos) throws Exception {
+        Random random = new Random(length);
+        char[] input = new char[length];
+        for (int i = 0; i < length; i++) {
+            input[i] = random.nextBoolean() ? 'a' : 'b';
+        }
+        String expected = fsm.interpret(new String(input));
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, bufferSize);
+            StringBuilder output = new StringBuilder(length);
+            CompletableFuture<Throwable> done = new CompletableFuture<>();
+            long start = System.nanoTime();
+            try (SubmissionPublisher<CharBuffer> publisher = new SubmissionPublisher<>()) {
+                publisher.subscribe(processor);
+                processor.subscribe(new Flow.Subscriber<>() {
+                    private Flow.Subscription subscription;
+                    private long outstanding;
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        this.subscription = subscription;
+                        this.outstanding = batch;
+                        subscription.request(batch);
+                    }
+
+                    @Override
+                    public void onNext(CharBuffer buffer) {
+                        output.append(buffer);
+                        processor.release(buffer);
+                        long end = System.nanoTime() + pauseNanos;
+                        while (System.nanoTime() < end) {
+                            Thread.onSpinWait();
+                        }
+                        if (--this.outstanding == 0 && batch != Long.MAX_VALUE) {
+                            this.outstanding = batch;
+                            this.subscription.request(batch);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        done.complete(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        done.complete(null);
+                    }
+                });
+                Random chunks = new Random(1);
+                for (int i = 0; i < length; ) {
+                    int end = Math.min(length, i + 1 + chunks.nextInt(4 * bufferSize));
+                    publisher.submit(CharBuffer.wrap(input, i, end - i).slice());
+                    i = end;
+                }
+            }
+            Throwable failure = done.get(60, TimeUnit.SECONDS);
+            best = Math.min(best, System.nanoTime() - start);
+            if (failure != null || !expected.contentEquals(output)) {
+                throw new IllegalStateException(name + " subscriber output differs from interpret", failure);
+            }
+        }
+        System.out.printf("%s subscriber: %.1f Mchar/s%n", name, length * 1e3 / best);
+    }
+
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.ITransition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Class generating random FSM transition tables and random input words for them through IFactory. A machine is
+ * described by its number of states, its alphabet, and its density, the chance that a state has a transition for a
+ * given input; a density of 1 gives a complete machine, anything lower an incomplete one which must be interpreted as
+ * partial. Generation is repeatable for a given seed.
+ *
+ */
+public final class RandomMachineGenerator {
+
+    private final Random random; /** The source of randomness, seeded by the constructor. */
+    private final IFactory factory; /** The factory used to make transitions. */
+
+    /**
+     * Generates the transitions of a random deterministic machine. The states are given scattered numbers so that
+     * engines which renumber states are exercised, every state has at least one transition, and the first transition
+     * returned leaves the initial state.
+     * @param states the number of states
+     * @param alphabet the number of input characters, which are also used as output characters
+     * @param first the first character of the alphabet
+     * @param density the chance that each state has a transition for each input, between 0 and 1
+     * @return the transitions, in a random order apart from the first
+     */
+    public List<ITransition> generate(int states, int alphabet, char first, double density) {
+        if (states <= 0 || alphabet <= 0 || first + alphabet > Character.MAX_VALUE + 1) {
+            throw new IllegalArgumentException("bad machine shape");
+        }
+        int[] numbers = new int[states];
+        for (int state = 0; state < states; state++) {
+            numbers[state] = state * 7 + this.random.nextInt(7);
+        }
+        for (int state = states - 1; state > 0; state--) {
+            int other = this.random.nextInt(state + 1);
+            int swap = numbers[state];
+            numbers[state] = numbers[other];
+            numbers[other] = swap;
+        }
+        List<ITransition> transitions = new ArrayList<>();
+        for (int state = 0; state < states; state++) {
+            int forced = this.random.nextInt(alphabet);
+            for (int column = 0; column < alphabet; column++) {
+                if (column == forced || this.random.nextDouble() < density) {
+                    transitions.add(this.factory.makeTransition(numbers[state], (char) (first + column),
+                            (char) (first + this.random.nextInt(alphabet)), numbers[this.random.nextInt(states)]));
+                }
+            }
+        }
+        ITransition start = transitions.get(this.random.nextInt(transitions.size()));
+        while (start.getCurrentState() != numbers[0]) {
+            start = transitions.get(this.random.nextInt(transitions.size()));
+        }
+        transitions.remove(start);
+        Collections.shuffle(transitions, this.random);
+        transitions.add(0, start);
+        return transitions;
+    }
+
+    /**
+     * Generates a random input word by walking the given machine from its initial state. At each step the walk
+     * follows a random transition, or with the given chance picks any character of the alphabet instead, which may
+     * have no transition in an incomplete machine.
+     * @param transitions the transitions of the machine, the first of which leaves the initial state
+     * @param length the length of the word
+     * @param noise the chance of picking any character of the alphabet at each step
+     * @return the word
+     */
+    public String walk(List<ITransition> transitions, int length, double noise) {
+        HashMap<Integer, List<ITransition>> byState = new HashMap<>();
+        TreeSet<Character> inputs = new TreeSet<>();
+        for (ITransition transition : transitions) {
+            byState.computeIfAbsent(transition.getCurrentState(), state -> new ArrayList<>()).add(transition);
+            inputs.add(transition.getInput());
+        }
+        Character[] alphabet = inputs.toArray(new Character[0]);
+        char[] word = new char[length];
+        int state = transitions.get(0).getCurrentState();
+        for (int i = 0; i < length; i++) {
+            List<ITransition> choices = byState.getOrDefault(state, List.of());
+            ITransition taken = null;
+            if (choices.isEmpty() || this.random.nextDouble() < noise) {
+                word[i] = alphabet[this.random.nextInt(alphabet.length)];
+                for (ITransition choice : choices) {
+                    if (choice.getInput() == word[i]) {
+                        taken = choice;
+                    }
+                }
+            } else {
+                taken = choices.get(this.random.nextInt(choices.size()));
+                word[i] = taken.getInput();
+            }
+            state = taken == null ? -1 : taken.getNextState();
+        }
+        return new String(word);
+    }
+
+    /**
+     * Simple constructor which seeds the generator.
+     * @param seed the seed, which determines every machine and word generated
+     */
+    public RandomMachineGenerator(long seed) {
+        this.random = new Random(seed);
+        this.factory = Factory.getInstance();
+    }
+
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import impl.Factory;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+
+import java.util.List;
+
+/**
+ * Benchmark comparing full interpretation of a long input with the output reduction modes, which do not build the
+ * output word.
+ *
+ */
+public final class ReductionBenchmark {
+
+    private static final int STATES = 64;
+    private static final int ALPHABET = 16;
+    private static final int INPUT_CHARS = 16 << 20;
+    private static final int ROUNDS = 7;
+
+    /**
+     * A mode of interpretation being timed.
+     */
+    @FunctionalInterface
+    private interface Mode {
+
+        /**
+         * Runs the mode over the input.
+         * @param input the input sequence/word
+         * @return a value derived from the result, so the work cannot be skipped
+         * @throws Exception should not be thrown
+         */
+        long run(String input) throws Exception;
+    }
+
+    private ReductionBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints the time per character and speedup of each mode.
+     * @param args unused
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        RandomMachineGenerator generator = new RandomMachineGenerator(42);
+        List<ITransition> transitions = generator.generate(STATES, ALPHABET, 'a', 1.0);
+        IFiniteStateMachine fsm = Factory.getInstance().makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        String input = generator.walk(transitions, INPUT_CHARS, 0);
+        long[] sink = new long[1];
+
+        double full = time("interpret", in -> fsm.interpret(in).length(), input, 0);
+        time("final state", fsm::getFinalState, input, full);
+        time("histogram", in -> fsm.getOutputHistogram(in).size(), input, full);
+        time("index of absent output", in -> fsm.indexOfOutput(in, '#'), input, full);
+        time("consumer", in -> {
+            fsm.interpret(in, (offset, output) -> sink[0] += output);
+            return sink[0];
+        }, input, full);
+    }
+
+    /**
+     * Times the best of several runs of a mode and prints the result.
+     * @param name the name of the mode
+     * @param mode the mode
+     * @param input the input sequence/word
+     * @param baseline the time per character of full interpretation, or 0 when timing it
+     * @return the time per character in nanoseconds
+     * @throws Exception should not be thrown
+     */
+    private static double time(String name, Mode mode, String input, double baseline) throws Exception {
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += mode.run(input);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double perChar = (double) best / input.length();
+        System.out.printf("%-23s %6.2f ns/char %6.2fx (%d)%n", name, perChar, baseline == 0 ? 1.0 : baseline / perChar, sink & 1);
+        return perChar;
+    }
+
+}
@@ -0,0 +1,135 @@
+package bench;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.CompiledMachine;
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmark reporting the memory and lookup time of each row representation chosen by CompiledMachine, on a partial
+ * machine mixing a few hub states which handle the whole alphabet with many states which handle only a few inputs.
+ *
+ */
+public final class RepresentationBenchmark {
+
+    private static final int ALPHABET = 64;
+    private static final int HUBS = 8;
+    private static final int SPARSE = 4000;
+    private static final int MEDIUM = 400;
+    private static final int LOOKUPS = 4_000_000;
+    private static final int ROUNDS = 5;
+
+    private RepresentationBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints one line per representation.
+     * @param args unused
+     * @throws NDTransitionException should not be thrown
+     * @throws BadTableException should not be thrown
+     * @throws BadInputException should not be thrown
+     */
+    public static void main(String[] args) throws NDTransitionException, BadTableException, BadInputException {
+        Random random = new Random(42);
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.setPartial(true);
+        int states = HUBS + SPARSE + MEDIUM;
+        for (int state = 0; state < states; state++) {
+            int inputs = state < HUBS ? ALPHABET : state < HUBS + SPARSE ? 2 + random.nextInt(2) : 10 + random.nextInt(15);
+            boolean[] used = new boolean[ALPHABET];
+            for (int i = 0; i < inputs; i++) {
+                int column;
+                do {
+                    column = random.nextInt(ALPHABET);
+                } while (used[column]);
+                used[column] = true;
+                fsm.addTransition(factory.makeTransition(state, symbol(column), symbol(random.nextInt(ALPHABET)), random.nextInt(states)));
+            }
+        }
+        CompiledMachine machine = (CompiledMachine) fsm.compile();
+
+        long dense = (long) machine.getStateCount() * ALPHABET * (4 + 2);
+        System.out.printf("%d states, footprint %d bytes (%d bytes as one dense table)%n",
+                machine.getStateCount(), machine.getFootprint(), dense);
+        for (CompiledMachine.Representation representation : CompiledMachine.Representation.values()) {
+            int[] probes = probes(machine, representation, random);
+            long best = Long.MAX_VALUE;
+            int sink = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < probes.length; i += 2) {
+                    sink += machine.getNextState(probes[i], (char) probes[i + 1]);
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            int rows = machine.getRowCount(representation);
+            long bytes = machine.getRowFootprint(representation);
+            System.out.printf("%-6s rows=%5d bytes=%8d bytes/row=%6.1f lookup=%5.2f ns (%d)%n", representation, rows, bytes,
+                    rows == 0 ? 0.0 : (double) bytes / rows, 2.0 * best / probes.length, sink & 1);
+        }
+
+        char[] input = new char[LOOKUPS];
+        char[] alphabet = machine.getAlphabet();
+        int state = 0;
+        for (int i = 0; i < input.length; i++) {
+            do {
+                input[i] = alphabet[random.nextInt(alphabet.length)];
+            } while (machine.getNextState(state, input[i]) < 0);
+            state = machine.getNextState(state, input[i]);
+        }
+        String word = new String(input);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            machine.interpret(word);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("mixed  interpret=%5.2f ns/char%n", (double) best / input.length);
+    }
+
+    /**
+     * Maps a column of the benchmark alphabet to its input character.
+     * @param column the column
+     * @return the input character
+     */
+    private static char symbol(int column) {
+        return (char) ('0' + column);
+    }
+
+    /**
+     * Picks random defined (state, input) pairs from the states using the given representation.
+     * @param machine the compiled machine
+     * @param representation the representation to probe
+     * @param random the source of randomness
+     * @return pairs of state and input, flattened
+     */
+    private static int[] probes(CompiledMachine machine, CompiledMachine.Representation representation, Random random) {
+        ArrayList<int[]> defined = new ArrayList<>();
+        for (int state = 0; state < machine.getStateCount(); state++) {
+            if (machine.getRepresentation(state) != representation) {
+                continue;
+            }
+            for (char input : machine.getAlphabet()) {
+                if (machine.getNextState(state, input) >= 0) {
+                    defined.add(new int[] {state, input});
+                }
+            }
+        }
+        int[] probes = new int[defined.isEmpty() ? 0 : 2 * LOOKUPS];
+        for (int i = 0; i < probes.length; i += 2) {
+            int[] pair = defined.get(random.nextInt(defined.size()));
+            probes[i] = pair[0];
+            probes[i + 1] = pair[1];
+        }
+        return probes;
+    }
+
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IRunInterpreter;
+import interfaces.ITransition;
+
+import java.util.List;
+
+/**
+ * Benchmark of run-length encoded input shaped like a heartbeat stream: long runs of padding between short blocks of
+ * data. It reports the time to find the final state with the run interpreter against the time to step through the
+ * same input, which is estimated from a sample since stepping through all of it would take minutes, and the time to
+ * expand a slice of the output.
+ *
+ */
+public final class RunBenchmark {
+
+    private static final int STATES = 256;
+    private static final int ALPHABET = 16;
+    private static final int HEARTBEATS = 1000;
+    private static final long PADDING = 1_000_000_000L;
+    private static final int SAMPLE = 1 << 24;
+    private static final int ROUNDS = 5;
+
+    private RunBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark and prints the timings.
+     * @param args unused
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        RandomMachineGenerator generator = new RandomMachineGenerator(42);
+        List<ITransition> transitions = generator.generate(STATES, ALPHABET, 'a', 1.0);
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        String[] data = new String[16];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = generator.walk(transitions, 32, 1.0);
+        }
+        IRunInterpreter runs = factory.makeRunInterpreter(fsm);
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            runs.reset();
+            long start = System.nanoTime();
+            for (int beat = 0; beat < HEARTBEATS; beat++) {
+                runs.addRun('a', PADDING);
+                runs.addRun(data[beat % data.length], 1);
+                runs.addRun("ab", PADDING / 2);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long stepped = Long.MAX_VALUE;
+        String sample = "a".repeat(SAMPLE);
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            fsm.getFinalState(sample);
+            stepped = Math.min(stepped, System.nanoTime() - start);
+        }
+        double estimate = (double) stepped / SAMPLE * runs.getLength();
+        System.out.printf("%d runs, %d input chars, final state %d%n", 3 * HEARTBEATS, runs.getLength(), runs.getState());
+        System.out.printf("run interpreter %10.3f ms (%.2f us per run, tables warm)%n", best / 1e6, best / 1e3 / (3 * HEARTBEATS));
+        System.out.printf("stepping        %10.0f ms (estimated from %d chars)%n", estimate / 1e6, SAMPLE);
+
+        long expand = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            runs.getOutput(runs.getLength() / 2, 1 << 20);
+            expand = Math.min(expand, System.nanoTime() - start);
+        }
+        System.out.printf("expanding 1M output chars from the middle %8.3f ms%n", expand / 1e6);
+    }
+
+}
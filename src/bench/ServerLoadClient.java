@@ -0,0 +1,196 @@
+package bench;
+
+import impl.Factory;
+import impl.InterpretClient;
+import impl.InterpretServer;
+import impl.MachineFile;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load-generating client for {@link InterpretServer}. It measures request and word throughput and request latency
+ * against the number of connections, the number of requests each connection keeps in flight and the number of words
+ * per request, over a loopback TCP socket and a Unix-domain socket. By default the server runs in this process; given
+ * an address it loads an external server instead, which must serve the machine under the name "random". Run with
+ * --dump and a path, it writes that machine to a .fsm file and exits, so that an external server can load it:
+ * {@code ServerLoadClient --dump random.fsm}, then {@code InterpretServer 9000 random=random.fsm}, then
+ * {@code ServerLoadClient 9000}.
+ *
+ */
+public final class ServerLoadClient {
+
+    private static final int STATES = 256;
+    private static final int WORD_LENGTH = 32;
+    private static final int WORDS = 4096;
+    private static final long MILLIS = 1000;
+
+    private ServerLoadClient() {
+
+    }
+
+    /**
+     * Runs the load and prints one line per transport, connection count, pipeline depth and batch size.
+     * @param args optionally the address of an external server, a loopback port or unix: followed by a socket path,
+     *             or --dump followed by the path to write the machine to
+     * @throws Exception should not be thrown
+     */
+    public static void main(String[] args) throws Exception {
+        List<ITransition> transitions = new RandomMachineGenerator(42).generate(STATES, 26, 'a', 1.0);
+        if (args.length > 0 && args[0].equals("--dump")) {
+            MachineFile.save(transitions, false, false, Path.of(args[1]));
+            return;
+        }
+        IFiniteStateMachine fsm = Factory.getInstance().makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        ICompiledMachine machine = fsm.compile();
+        RandomMachineGenerator generator = new RandomMachineGenerator(7);
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = generator.walk(transitions, WORD_LENGTH, 0.0);
+        }
+        System.out.printf("%d words of %d chars, %d ms per row%n", WORDS, WORD_LENGTH, MILLIS);
+        System.out.printf("%-5s %5s %5s %5s %12s %12s %10s %10s%n", "net", "conns", "depth", "batch", "req/s", "words/s", "p50 us", "p99 us");
+        if (args.length > 0) {
+            SocketAddress address = args[0].startsWith("unix:")
+                    ? UnixDomainSocketAddress.of(args[0].substring(5))
+                    : new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+            table(args[0], address, words);
+            return;
+        }
+        Path directory = Files.createTempDirectory("fsm");
+        SocketAddress[] addresses = {
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            UnixDomainSocketAddress.of(directory.resolve("server.sock"))
+        };
+        for (SocketAddress address : addresses) {
+            InterpretServer server = new InterpretServer(Map.of("random", machine), address);
+            Thread thread = new Thread(server);
+            thread.start();
+            try {
+                table(address instanceof UnixDomainSocketAddress ? "unix" : "tcp", server.getAddress(), words);
+            } finally {
+                server.close();
+                thread.join();
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Runs the load against one server with each combination of connections, depth and batch size.
+     * @param name the name of the transport
+     * @param address the address of the server
+     * @param words the words to send
+     * @throws Exception should not be thrown
+     */
+    private static void table(String name, SocketAddress address, String[] words) throws Exception {
+        for (int connections : new int[] {1, 4}) {
+            for (int depth : new int[] {1, 16}) {
+                for (int batch : new int[] {1, 64}) {
+                    load(name, address, words, connections, depth, batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one row of the load: each connection keeps depth requests in flight, sending another as soon as a
+     * response arrives, until the time is up.
+     * @param name the name of the transport
+     * @param address the address of the server
+     * @param words the words to send
+     * @param connections the number of connections
+     * @param depth the number of requests each connection keeps in flight
+     * @param batch the number of words per request
+     * @throws Exception should not be thrown
+     */
+    private static void load(String name, SocketAddress address, String[] words, int connections, int depth, int batch) throws Exception {
+        AtomicLong requests = new AtomicLong();
+        long[][] latencies = new long[connections][];
+        Thread[] threads = new Thread[connections];
+        Exception[] failure = new Exception[1];
+        long deadline = System.nanoTime() + MILLIS * 1_000_000;
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            threads[c] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int sampled = 0;
+                long[] sent = new long[depth];
+                int next = connection * 7919;
+                try (InterpretClient client = new InterpretClient(address)) {
+                    int id = 0;
+                    for (; id < depth; id++) {
+                        sent[id % depth] = System.nanoTime();
+                        client.send(id, "random", slice(words, next, batch));
+                        next += batch;
+                    }
+                    client.flush();
+                    for (int received = 0; received < id; received++) {
+                        InterpretClient.Response response = client.receive();
+                        long now = System.nanoTime();
+                        if (response.getStatus() != InterpretServer.OK || response.getId() != received) {
+                            throw new IllegalStateException("bad response " + response.getId() + ": " + response.getMessage());
+                        }
+                        samples[sampled++ & (samples.length - 1)] = now - sent[received % depth];
+                        if (now < deadline) {
+                            sent[id % depth] = now;
+                            client.send(id++, "random", slice(words, next, batch));
+                            client.flush();
+                            next += batch;
+                        }
+                    }
+                    requests.addAndGet(id);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+                latencies[connection] = Arrays.copyOf(samples, Math.min(sampled, samples.length));
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = elapsed / 1e9;
+        System.out.printf("%-5s %5d %5d %5d %12.0f %12.0f %10.1f %10.1f%n", name, connections, depth, batch,
+                requests.get() / seconds, requests.get() * batch / seconds,
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3);
+    }
+
+    /**
+     * Takes the next words from the pool, wrapping around at its end.
+     * @param words the pool of words
+     * @param from the index of the first word, which may be past the end of the pool
+     * @param count the number of words
+     * @return the words
+     */
+    private static String[] slice(String[] words, int from, int count) {
+        String[] slice = new String[count];
+        for (int i = 0; i < count; i++) {
+            slice[i] = words[(from + i) % words.length];
+        }
+        return slice;
+    }
+
+}
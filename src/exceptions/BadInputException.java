@@ -8,4 +8,30 @@ public class BadInputException extends Exception {
 
     private static final long serialVersionUID = 3164085610475465560L;
 
+    private final long offset; /** The offset of the offending character in the input, or -1 if unknown. */
+
+    /**
+     * Creates an exception which does not record where in the input the problem was found.
+     */
+    public BadInputException() {
+        this(-1);
+    }
+
+    /**
+     * Creates an exception recording the offset of the offending character in the input.
+     * @param offset the offset of the offending character, or -1 if unknown
+     */
+    public BadInputException(long offset) {
+        super(offset < 0 ? null : "bad input at offset " + offset);
+        this.offset = offset;
+    }
+
+    /**
+     * Simple getter method which returns the offset of the offending character in the input.
+     * @return the offset of the offending character, or -1 if unknown
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
 }
@@ -0,0 +1,1191 @@
+package impl;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import interfaces.ICompiledMachine;
+import interfaces.IOutputConsumer;
+import interfaces.ITransition;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class representing an immutable, compiled finite state machine. Transitions are held in flat primitive arrays
+ * indexed by state and input column, so a step is a pair of array reads rather than a search of the transition table.
+ *
+ */
+public final class CompiledMachine implements ICompiledMachine {
+
+    private static final int MAX_DIRECT_SPAN = 1024; /** Widest input alphabet span given a direct column lookup table. */
+    private static final int MAX_SORTED = 8; /** The most inputs a state may handle to be given a sorted row. */
+    private static final int HASH_ATTEMPTS = 64; /** The number of multipliers tried for each hash row size. */
+    private static final int INSERTION_SORT = 12; /** The most inputs in a batch partition sorted by insertion sort. */
+    private static final int KEY_CHARS = 3; /** The number of input characters packed into each batch sort key. */
+    private static final int KEY_CHAR_BITS = 21; /** The bits given to each character of a sort key, which holds the character plus one. */
+    private static final long KEY_CHAR_MASK = (1L << KEY_CHAR_BITS) - 1; /** Mask of the last character of a sort key. */
+    private static final int SHARING_SAMPLE = 256; /** The most inputs of a batch sampled to estimate how much of it shares prefixes. */
+    private static final double MIN_SHARED = 0.5; /** The estimated fraction of a batch's characters which must be shared for an adaptive batch over mostly direct rows or out of order to be worth resuming. */
+    private static final byte DIRECT = 0; /** Kind of a row with one slot per column; matches Representation.DIRECT. */
+    private static final byte SORTED = 1; /** Kind of a row sorted by input; matches Representation.SORTED. */
+    private static final byte HASH = 2; /** Kind of a row placed by a perfect hash; matches Representation.HASH. */
+
+    private final char[] alphabet; /** The input alphabet in ascending order, one column per input. */
+    private final int[] columns; /** Direct lookup from input - alphabet[0] to column, or null when the alphabet span is too wide. */
+    private final int[] byteColumns; /** Direct lookup from each of the 256 byte values to column, or -1. */
+    private final boolean byteOutputs; /** True when every output fits in a single Latin-1 byte. */
+    private final int stateCount; /** The number of states, numbered from 0 in breadth-first order. */
+    private final boolean mostlyDirect; /** True when more than half the states have direct rows, whose steps cost about as much as comparing a character. */
+    private final byte[] kinds; /** The representation of each state's row: DIRECT, SORTED or HASH. */
+    private final int[] bases; /** The first slot of each state's row. */
+    private final int[] sizes; /** The length of each SORTED row, or the shift of each HASH row. */
+    private final int[] multipliers; /** The hash multiplier of each HASH row. */
+    private final char[] keys; /** The input held in each slot. */
+    private final int[] next; /** The next state held in each slot, or -1 when the slot is empty. */
+    private final char[] out; /** The output held in each slot. */
+    private final char[] outputs; /** The output alphabet in ascending order. */
+    private final char[] outputColumns; /** The index in outputs of the output held in each slot, as a char. */
+    private final int[] labels; /** The original state number of each state, or null when the machine is minimized. */
+    private final int prunedStates; /** The number of unreachable states dropped when compiling. */
+    private final int prunedTransitions; /** The number of transitions from unreachable states dropped when compiling. */
+    private final int hash; /** Cached structural hash code. */
+
+    /**
+     * Compiles the given transitions into a machine, dropping the rows of states which are unreachable from the
+     * initial state. States are numbered in the breadth-first order found by the reachability analysis.
+     * @param transitions the transitions of the FSM
+     * @param startState the initial state of the FSM
+     * @return the compiled machine
+     */
+    public static CompiledMachine compile(List<ITransition> transitions, int startState) {
+        return compile(transitions, Reachability.analyse(transitions, startState));
+    }
+
+    /**
+     * Compiles the given transitions into a machine holding only the reachable states of the given analysis.
+     * @param transitions the transitions of the FSM
+     * @param reachability the reachability analysis of the transitions
+     * @return the compiled machine
+     */
+    static CompiledMachine compile(List<ITransition> transitions, Reachability reachability) {
+        char[] inputs = new char[transitions.size()];
+        int distinct = 0;
+        for (ITransition transition : transitions) {
+            if (reachability.isReachable(transition.getCurrentState())) {
+                inputs[distinct++] = transition.getInput();
+            }
+        }
+        Arrays.sort(inputs, 0, distinct);
+        int width = 0;
+        for (int i = 0; i < distinct; i++) {
+            if (i == 0 || inputs[i] != inputs[i - 1]) {
+                inputs[width++] = inputs[i];
+            }
+        }
+        char[] alphabet = Arrays.copyOf(inputs, width);
+
+        int stateCount = reachability.getReachableStateCount();
+        int[] next = new int[stateCount * width];
+        char[] out = new char[stateCount * width];
+        Arrays.fill(next, -1);
+        for (ITransition transition : transitions) {
+            int state = reachability.indexOf(transition.getCurrentState());
+            if (state >= 0) {
+                int slot = state * width + Arrays.binarySearch(alphabet, transition.getInput());
+                next[slot] = reachability.indexOf(transition.getNextState());
+                out[slot] = transition.getOutput();
+            }
+        }
+        return new CompiledMachine(alphabet, stateCount, next, out, reachability.getReachableStates(),
+                reachability.getPrunedStateCount(), reachability.getPrunedTransitionCount());
+    }
+
+    /**
+     * Constructor which takes dense rows, one entry per state and column, and lays each state out in the
+     * representation suited to how many inputs it handles: a direct row indexed by column for dense states, a small
+     * sorted row searched without branches for states with a few inputs, or a perfect hash row otherwise, unless the
+     * smallest perfect hash row found is no smaller than a direct row, which is then used instead as it is also faster.
+     * The choice depends only on the rows, so equal machines are laid out identically.
+     * @param alphabet the input alphabet in ascending order
+     * @param stateCount the number of states
+     * @param next the next state for each state and column, or -1
+     * @param out the output for each state and column
+     * @param labels the original state numbers, or null for a minimized machine
+     * @param prunedStates the number of unreachable states dropped when compiling
+     * @param prunedTransitions the number of transitions from unreachable states dropped when compiling
+     */
+    private CompiledMachine(char[] alphabet, int stateCount, int[] next, char[] out, int[] labels, int prunedStates, int prunedTransitions) {
+        this.alphabet = alphabet;
+        this.stateCount = stateCount;
+        this.labels = labels;
+        this.prunedStates = prunedStates;
+        this.prunedTransitions = prunedTransitions;
+        int span = alphabet.length == 0 ? 0 : alphabet[alphabet.length - 1] - alphabet[0] + 1;
+        if (span <= MAX_DIRECT_SPAN) {
+            this.columns = new int[span];
+            Arrays.fill(this.columns, -1);
+            for (int column = 0; column < alphabet.length; column++) {
+                this.columns[alphabet[column] - alphabet[0]] = column;
+            }
+        } else {
+            this.columns = null;
+        }
+        this.byteColumns = new int[256];
+        for (int b = 0; b < 256; b++) {
+            this.byteColumns[b] = column((char) b);
+        }
+
+        int width = alphabet.length;
+        this.kinds = new byte[stateCount];
+        this.bases = new int[stateCount];
+        this.sizes = new int[stateCount];
+        this.multipliers = new int[stateCount];
+        int[] defined = new int[stateCount];
+        int slots = 0;
+        for (int state = 0; state < stateCount; state++) {
+            for (int column = 0; column < width; column++) {
+                if (next[state * width + column] >= 0) {
+                    defined[state]++;
+                }
+            }
+            this.bases[state] = slots;
+            if (defined[state] > 0 && defined[state] * 2 >= width) {
+                this.kinds[state] = DIRECT;
+                slots += width;
+            } else if (defined[state] <= MAX_SORTED) {
+                this.kinds[state] = SORTED;
+                this.sizes[state] = defined[state];
+                slots += defined[state];
+            } else {
+                this.kinds[state] = HASH;
+                char[] keys = new char[defined[state]];
+                for (int column = 0, k = 0; column < width; column++) {
+                    if (next[state * width + column] >= 0) {
+                        keys[k++] = alphabet[column];
+                    }
+                }
+                int bits = perfectHash(keys, state);
+                if (1 << bits >= width) {
+                    this.kinds[state] = DIRECT;
+                    this.sizes[state] = 0;
+                    this.multipliers[state] = 0;
+                    slots += width;
+                } else {
+                    slots += 1 << bits;
+                }
+            }
+        }
+
+        this.mostlyDirect = 2 * getRowCount(Representation.DIRECT) > stateCount;
+        this.keys = new char[slots];
+        this.next = new int[slots];
+        this.out = new char[slots];
+        Arrays.fill(this.next, -1);
+        for (int state = 0; state < stateCount; state++) {
+            int sorted = this.bases[state];
+            for (int column = 0; column < width; column++) {
+                int dense = state * width + column;
+                if (next[dense] < 0) {
+                    continue;
+                }
+                int slot;
+                if (this.kinds[state] == DIRECT) {
+                    slot = this.bases[state] + column;
+                } else if (this.kinds[state] == SORTED) {
+                    slot = sorted++;
+                } else {
+                    slot = this.bases[state] + ((alphabet[column] * this.multipliers[state]) >>> this.sizes[state]);
+                }
+                this.keys[slot] = alphabet[column];
+                this.next[slot] = next[dense];
+                this.out[slot] = out[dense];
+            }
+        }
+
+        boolean byteOutputs = true;
+        for (int slot = 0; slot < this.out.length; slot++) {
+            byteOutputs &= this.next[slot] < 0 || this.out[slot] <= 0xFF;
+        }
+        this.byteOutputs = byteOutputs;
+
+        char[] produced = new char[slots];
+        int count = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (this.next[slot] >= 0) {
+                produced[count++] = this.out[slot];
+            }
+        }
+        Arrays.sort(produced, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || produced[i] != produced[i - 1]) {
+                produced[distinct++] = produced[i];
+            }
+        }
+        this.outputs = Arrays.copyOf(produced, distinct);
+        this.outputColumns = new char[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            if (this.next[slot] >= 0) {
+                this.outputColumns[slot] = (char) Arrays.binarySearch(this.outputs, this.out[slot]);
+            }
+        }
+
+        int h = stateCount;
+        h = 31 * h + Arrays.hashCode(alphabet);
+        h = 31 * h + Arrays.hashCode(this.kinds);
+        h = 31 * h + Arrays.hashCode(this.keys);
+        h = 31 * h + Arrays.hashCode(this.next);
+        h = 31 * h + Arrays.hashCode(this.out);
+        h = 31 * h + Arrays.hashCode(labels);
+        this.hash = h;
+    }
+
+    /**
+     * Finds a multiplier which hashes the given keys into distinct slots of a power of two sized row, trying a fixed
+     * sequence of odd multipliers for each row size, and records it with the shift for the given state. A row of
+     * 2^16 slots always succeeds, since its multiplier 2^16 maps each key to itself.
+     * @param keys the inputs handled by the state
+     * @param state the state whose row is being built
+     * @return the number of bits in the row size
+     */
+    private int perfectHash(char[] keys, int state) {
+        for (int bits = 32 - Integer.numberOfLeadingZeros(keys.length - 1) + 1; bits < 16; bits++) {
+            boolean[] used = new boolean[1 << bits];
+            int multiplier = 0x9E3779B1;
+            for (int attempt = 0; attempt < HASH_ATTEMPTS; attempt++, multiplier += 0x7F4A7C16) {
+                Arrays.fill(used, false);
+                boolean perfect = true;
+                for (char key : keys) {
+                    int h = (key * multiplier) >>> (32 - bits);
+                    if (used[h]) {
+                        perfect = false;
+                        break;
+                    }
+                    used[h] = true;
+                }
+                if (perfect) {
+                    this.multipliers[state] = multiplier;
+                    this.sizes[state] = 32 - bits;
+                    return bits;
+                }
+            }
+        }
+        this.multipliers[state] = 1 << 16;
+        this.sizes[state] = 16;
+        return 16;
+    }
+
+    /**
+     * Finds the column of the given input in the alphabet.
+     * @param input the input to look up
+     * @return the column of the input, or -1 if it is not in the alphabet
+     */
+    int column(char input) {
+        if (this.columns != null) {
+            int offset = input - (this.alphabet.length == 0 ? 0 : this.alphabet[0]);
+            return offset >= 0 && offset < this.columns.length ? this.columns[offset] : -1;
+        }
+        int column = Arrays.binarySearch(this.alphabet, input);
+        return column >= 0 ? column : -1;
+    }
+
+    /**
+     * Finds the slot in the transition arrays for the given state and input, according to the state's representation.
+     * @param state the compiled state
+     * @param input the input
+     * @return the slot holding the transition, or -1 if there is no transition
+     */
+    int slot(int state, char input) {
+        int slot;
+        switch (this.kinds[state]) {
+            case DIRECT:
+                int column = column(input);
+                if (column < 0) {
+                    return -1;
+                }
+                slot = this.bases[state] + column;
+                break;
+            case SORTED:
+                int n = this.sizes[state];
+                if (n == 0) {
+                    return -1;
+                }
+                slot = this.bases[state];
+                while (n > 1) {
+                    int half = n >>> 1;
+                    slot = this.keys[slot + half] <= input ? slot + half : slot;
+                    n -= half;
+                }
+                break;
+            default:
+                slot = this.bases[state] + ((input * this.multipliers[state]) >>> this.sizes[state]);
+                break;
+        }
+        return this.keys[slot] == input && this.next[slot] >= 0 ? slot : -1;
+    }
+
+    /**
+     * Finds the slot for the given state and byte input, looking up the column of direct rows in the 256 entry byte table.
+     * @param state the compiled state
+     * @param input the input byte, read as Latin-1
+     * @return the slot holding the transition, or -1 if there is no transition
+     */
+    private int byteSlot(int state, int input) {
+        if (this.kinds[state] != DIRECT) {
+            return slot(state, (char) input);
+        }
+        int column = this.byteColumns[input];
+        if (column < 0) {
+            return -1;
+        }
+        int slot = this.bases[state] + column;
+        return this.next[slot] >= 0 ? slot : -1;
+    }
+
+    /**
+     * Finds the slot for the given state and input whose column has already been found, so that machines sharing an
+     * alphabet can look each input up once.
+     * @param state the compiled state
+     * @param input the input
+     * @param column the column of the input, as returned by {@link #column(char)}
+     * @return the slot holding the transition, or -1 if there is no transition
+     */
+    int slot(int state, char input, int column) {
+        if (this.kinds[state] != DIRECT) {
+            return slot(state, input);
+        }
+        if (column < 0) {
+            return -1;
+        }
+        int slot = this.bases[state] + column;
+        return this.next[slot] >= 0 ? slot : -1;
+    }
+
+    /**
+     * Returns the next state stored in the given slot.
+     * @param slot a slot returned by {@link #slot(int, char)}
+     * @return the next compiled state
+     */
+    int nextState(int slot) {
+        return this.next[slot];
+    }
+
+    /**
+     * Returns the output stored in the given slot.
+     * @param slot a slot returned by {@link #slot(int, char)}
+     * @return the output of the transition
+     */
+    char output(int slot) {
+        return this.out[slot];
+    }
+
+    /**
+     * Simple getter method which returns the number of states.
+     * @return the number of states
+     */
+    @Override
+    public int getStateCount() {
+        return this.stateCount;
+    }
+
+    /**
+     * Simple getter method which returns a copy of the input alphabet.
+     * @return the input alphabet in ascending order
+     */
+    @Override
+    public char[] getAlphabet() {
+        return this.alphabet.clone();
+    }
+
+    /**
+     * Returns the state number used by the original FSM for the given compiled state.
+     * @param state the compiled state
+     * @return the original state number, or the compiled state itself if the machine has been minimized
+     */
+    @Override
+    public int getStateLabel(int state) {
+        return this.labels == null ? state : this.labels[state];
+    }
+
+    /**
+     * Returns the next state for the given compiled state and input.
+     * @param state the compiled state to use
+     * @param input the input to use
+     * @return the next compiled state, or -1 if there is no transition for the given state and input
+     */
+    @Override
+    public int getNextState(int state, char input) {
+        int slot = slot(state, input);
+        return slot < 0 ? -1 : this.next[slot];
+    }
+
+    /**
+     * Returns the output for the given compiled state and input.
+     * @param state the compiled state to use
+     * @param input the input to use
+     * @return the output of the transition
+     * @throws BadInputException if there is no transition for the given state and input
+     */
+    @Override
+    public char getOutput(int state, char input) throws BadInputException {
+        int slot = slot(state, input);
+        if (slot < 0) {
+            throw new BadInputException();
+        }
+        return this.out[slot];
+    }
+
+    /**
+     * Runs the machine from state 0, writing one output character per input character into a single array.
+     * @param input the input sequence/word to the machine
+     * @return the output sequence/word generated for the given input sequence
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    @Override
+    public String interpret(String input) throws BadInputException {
+        int length = input.length();
+        char[] output = new char[length];
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.charAt(i));
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            output[i] = this.out[slot];
+            state = this.next[slot];
+        }
+        return new String(output);
+    }
+
+    /**
+     * Runs the machine from state 0 following only the next states, so the loop reads no outputs at all.
+     * @param input the input sequence/word to the machine
+     * @return the compiled state reached
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    @Override
+    public int getFinalState(String input) throws BadInputException {
+        int length = input.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.charAt(i));
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            state = this.next[slot];
+        }
+        return state;
+    }
+
+    /**
+     * Simple getter method which returns a copy of the output alphabet.
+     * @return a copy of the output alphabet
+     */
+    @Override
+    public char[] getOutputAlphabet() {
+        return this.outputs.clone();
+    }
+
+    /**
+     * Runs the machine from state 0, counting outputs by their precomputed index in the output alphabet so that the
+     * loop only increments an array sized to the output alphabet.
+     * @param input the input sequence/word to the machine
+     * @return the count of each character of the output alphabet
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    @Override
+    public int[] countOutputs(String input) throws BadInputException {
+        int length = input.length();
+        int[] counts = new int[this.outputs.length];
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.charAt(i));
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            counts[this.outputColumns[slot]]++;
+            state = this.next[slot];
+        }
+        return counts;
+    }
+
+    /**
+     * Runs the machine from state 0 until a transition produces the given output, returning at once if the output is
+     * not in the output alphabet.
+     * @param input the input sequence/word to the machine
+     * @param output the output character to look for
+     * @return the offset of the first input character whose transition produces the output, or -1
+     * @throws BadInputException if a character before the first occurrence of the output has no transition from the state reached
+     */
+    @Override
+    public int indexOfOutput(String input, char output) throws BadInputException {
+        if (Arrays.binarySearch(this.outputs, output) < 0) {
+            getFinalState(input);
+            return -1;
+        }
+        int length = input.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.charAt(i));
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            if (this.out[slot] == output) {
+                return i;
+            }
+            state = this.next[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the machine from state 0, handing each output to the consumer instead of storing it.
+     * @param input the input sequence/word to the machine
+     * @param consumer the consumer to receive each output character
+     * @return the compiled state reached
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    @Override
+    public int interpret(String input, IOutputConsumer consumer) throws BadInputException {
+        int length = input.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.charAt(i));
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            consumer.accept(i, this.out[slot]);
+            state = this.next[slot];
+        }
+        return state;
+    }
+
+    /**
+     * Runs the machine over the batch in sorted order, keeping the state reached and output produced at each depth of
+     * the previous input. Each input resumes from the end of its common prefix with the previous one, and an input
+     * which shares the previous input's prefix up to and including a character without a transition is rejected
+     * without stepping at all. Repeated inputs share one output string. The sort is skipped when the batch is already
+     * in order.
+     * @param inputs the input sequences/words to the machine
+     * @param outputs filled with the output for each input, or null for each rejected input
+     * @return the number of input characters stepped through
+     */
+    @Override
+    public long interpret(String[] inputs, String[] outputs) {
+        return interpret(inputs, outputs, BatchMode.SHARED_PREFIXES);
+    }
+
+    /**
+     * Runs the machine over the batch in the given mode. In adaptive mode, comparing prefixes and sorting only pay off
+     * when they save more than stepping would cost, so the batch is interpreted one input at a time when it is out of
+     * order and most rows are direct, since a direct step costs little more than comparing a character, or when a
+     * sample of the batch shares too little.
+     * @param inputs the input sequences/words to the machine
+     * @param outputs filled with the output for each input, or null for each rejected input
+     * @param mode how the batch is interpreted
+     * @return the number of input characters stepped through
+     */
+    @Override
+    public long interpret(String[] inputs, String[] outputs, BatchMode mode) {
+        if (outputs.length < inputs.length) {
+            throw new IllegalArgumentException("outputs array is shorter than inputs array");
+        }
+        int longest = 0;
+        boolean sorted = true;
+        for (int i = 0; i < inputs.length; i++) {
+            longest = Math.max(longest, inputs[i].length());
+            sorted = sorted && (i == 0 || compare(inputs[i - 1], inputs[i], 0) <= 0);
+        }
+        if (mode == BatchMode.EACH_WORD || mode == BatchMode.ADAPTIVE && (sorted
+                ? this.mostlyDirect && shared(inputs, true) < MIN_SHARED
+                : this.mostlyDirect || shared(inputs, false) < MIN_SHARED)) {
+            return interpretEach(inputs, outputs, longest);
+        }
+        int[] order = new int[inputs.length];
+        long[] keys = new long[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            order[i] = i;
+            keys[i] = key(inputs[i], 0);
+        }
+        if (!sorted) {
+            sort(inputs, order, keys, 0, inputs.length, 0);
+        }
+        int[] states = new int[longest + 1];
+        char[] output = new char[longest];
+        String previous = "";
+        int last = -1;
+        int valid = 0;
+        boolean rejected = false;
+        long stepped = 0;
+        for (int index : order) {
+            String input = inputs[index];
+            if (last >= 0 && input.equals(previous)) {
+                outputs[index] = outputs[last];
+                last = index;
+                continue;
+            }
+            int length = input.length();
+            int depth = 0;
+            int shared = Math.min(valid, length);
+            while (depth < shared && input.charAt(depth) == previous.charAt(depth)) {
+                depth++;
+            }
+            if (rejected && depth == valid && length > valid && input.charAt(valid) == previous.charAt(valid)) {
+                outputs[index] = null;
+                previous = input;
+                last = index;
+                continue;
+            }
+            int state = states[depth];
+            int resumed = depth;
+            rejected = false;
+            for (; depth < length; depth++) {
+                int slot = slot(state, input.charAt(depth));
+                if (slot < 0) {
+                    rejected = true;
+                    break;
+                }
+                output[depth] = this.out[slot];
+                state = this.next[slot];
+                states[depth + 1] = state;
+            }
+            stepped += depth - resumed;
+            valid = depth;
+            outputs[index] = rejected ? null : new String(output, 0, length);
+            previous = input;
+            last = index;
+        }
+        return stepped;
+    }
+
+    /**
+     * Runs the machine over each input of the batch alone, from state 0.
+     * @param inputs the input sequences/words to the machine
+     * @param outputs filled with the output for each input, or null for each rejected input
+     * @param longest the length of the longest input
+     * @return the number of input characters stepped through
+     */
+    private long interpretEach(String[] inputs, String[] outputs, int longest) {
+        char[] output = new char[longest];
+        long stepped = 0;
+        for (int index = 0; index < inputs.length; index++) {
+            String input = inputs[index];
+            int length = input.length();
+            int state = 0;
+            int depth = 0;
+            for (; depth < length; depth++) {
+                int slot = slot(state, input.charAt(depth));
+                if (slot < 0) {
+                    break;
+                }
+                output[depth] = this.out[slot];
+                state = this.next[slot];
+            }
+            stepped += depth;
+            outputs[index] = depth < length ? null : new String(output, 0, length);
+        }
+        return stepped;
+    }
+
+    /**
+     * Estimates the fraction of a batch's characters which each input shares with the one before it in sorted order,
+     * from a sample of the batch. A sorted batch is sampled as pairs of neighbours. An unsorted batch is sampled as
+     * evenly spaced inputs which are then sorted; since the common prefix of sorted neighbours grows with the
+     * logarithm of how many inputs there are, the sample's sharing is scaled up by the ratio of the logarithms of the
+     * batch and sample sizes.
+     * @param inputs the input sequences/words of the batch
+     * @param sorted true if the batch is already in sorted order
+     * @return the estimated fraction of characters shared, between 0 and 1
+     */
+    private static double shared(String[] inputs, boolean sorted) {
+        int count = Math.min(inputs.length, SHARING_SAMPLE);
+        if (count < 2) {
+            return 0;
+        }
+        String[] sample = new String[count];
+        if (!sorted) {
+            for (int i = 0; i < count; i++) {
+                sample[i] = inputs[(int) ((long) i * inputs.length / count)];
+            }
+            Arrays.sort(sample);
+        }
+        long common = 0;
+        long total = 0;
+        for (int i = 1; i < count; i++) {
+            int pair = (int) ((long) i * (inputs.length - 1) / (count - 1));
+            String first = sorted ? inputs[pair - 1] : sample[i - 1];
+            String second = sorted ? inputs[pair] : sample[i];
+            int length = Math.min(first.length(), second.length());
+            int depth = 0;
+            while (depth < length && first.charAt(depth) == second.charAt(depth)) {
+                depth++;
+            }
+            common += depth;
+            total += second.length();
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double fraction = (double) common / total;
+        if (!sorted) {
+            fraction *= Math.log(inputs.length) / Math.log(count);
+        }
+        return Math.min(1, fraction);
+    }
+
+    /**
+     * Sorts part of an array of indices by the inputs they refer to, all of which share their first depth characters,
+     * using multikey quicksort: a three-way partition on the characters at the current depth, continuing deeper only
+     * within the partition of equal characters. The next few characters of each input are cached in a key kept in a
+     * parallel array, so partitioning compares primitives instead of reading scattered strings, and no shared prefix
+     * is read more than once per descent.
+     * @param inputs the input sequences/words
+     * @param order the indices to sort
+     * @param keys the key of each index in order for the characters from depth on
+     * @param from the first position to sort
+     * @param to the position after the last to sort
+     * @param depth the number of leading characters shared by every input in the range
+     */
+    private static void sort(String[] inputs, int[] order, long[] keys, int from, int to, int depth) {
+        while (to - from > 1) {
+            if (to - from <= INSERTION_SORT) {
+                for (int i = from + 1; i < to; i++) {
+                    for (int j = i; j > from && compare(inputs[order[j - 1]], inputs[order[j]], depth) > 0; j--) {
+                        int swap = order[j];
+                        order[j] = order[j - 1];
+                        order[j - 1] = swap;
+                    }
+                }
+                return;
+            }
+            long pivot = keys[(from + to) >>> 1];
+            int less = from;
+            int greater = to;
+            for (int i = from; i < greater; ) {
+                long key = keys[i];
+                if (key < pivot) {
+                    swap(order, keys, i++, less++);
+                } else if (key > pivot) {
+                    swap(order, keys, i, --greater);
+                } else {
+                    i++;
+                }
+            }
+            sort(inputs, order, keys, from, less, depth);
+            sort(inputs, order, keys, greater, to, depth);
+            if ((pivot & KEY_CHAR_MASK) == 0) {
+                return;
+            }
+            from = less;
+            to = greater;
+            depth += KEY_CHARS;
+            for (int i = from; i < to; i++) {
+                keys[i] = key(inputs[order[i]], depth);
+            }
+        }
+    }
+
+    /**
+     * Swaps two positions of the index and key arrays being sorted.
+     * @param order the indices
+     * @param keys the keys
+     * @param first the first position
+     * @param second the second position
+     */
+    private static void swap(int[] order, long[] keys, int first, int second) {
+        int index = order[first];
+        order[first] = order[second];
+        order[second] = index;
+        long key = keys[first];
+        keys[first] = keys[second];
+        keys[second] = key;
+    }
+
+    /**
+     * Packs the characters of the input from the given offset into a sort key. Each character is stored plus one, so
+     * that positions past the end of the input are 0 and shorter inputs sort first.
+     * @param input the input sequence/word
+     * @param offset the offset of the first character to pack
+     * @return the key
+     */
+    private static long key(String input, int offset) {
+        long key = 0;
+        for (int i = offset; i < offset + KEY_CHARS; i++) {
+            key = key << KEY_CHAR_BITS | (i < input.length() ? input.charAt(i) + 1 : 0);
+        }
+        return key;
+    }
+
+    /**
+     * Compares two inputs which share their first depth characters.
+     * @param first the first input
+     * @param second the second input
+     * @param depth the number of leading characters known to be equal
+     * @return a negative number, zero or a positive number as the first input sorts before, with or after the second
+     */
+    private static int compare(String first, String second, int depth) {
+        int length = Math.min(first.length(), second.length());
+        for (int i = depth; i < length; i++) {
+            if (first.charAt(i) != second.charAt(i)) {
+                return first.charAt(i) - second.charAt(i);
+            }
+        }
+        return first.length() - second.length();
+    }
+
+    /**
+     * Runs the machine from the given state over the remaining input in a buffer, reading and writing the backing
+     * arrays directly when both buffers have them.
+     * @param state the compiled state to start from
+     * @param input the buffer of input characters
+     * @param output the buffer to write output characters to
+     * @return the state reached
+     * @throws BadInputException if an input character has no transition from the state reached
+     */
+    @Override
+    public int interpret(int state, CharBuffer input, CharBuffer output) throws BadInputException {
+        int length = Math.min(input.remaining(), output.remaining());
+        int start = input.position();
+        if (input.hasArray() && output.hasArray()) {
+            char[] in = input.array();
+            char[] written = output.array();
+            int from = input.arrayOffset() + start;
+            int to = output.arrayOffset() + output.position();
+            for (int i = 0; i < length; i++) {
+                int slot = slot(state, in[from + i]);
+                if (slot < 0) {
+                    input.position(start + i);
+                    output.position(output.position() + i);
+                    throw new BadInputException(start + i);
+                }
+                written[to + i] = this.out[slot];
+                state = this.next[slot];
+            }
+            input.position(start + length);
+            output.position(output.position() + length);
+            return state;
+        }
+        for (int i = 0; i < length; i++) {
+            int slot = slot(state, input.get(start + i));
+            if (slot < 0) {
+                input.position(start + i);
+                throw new BadInputException(start + i);
+            }
+            output.put(this.out[slot]);
+            state = this.next[slot];
+        }
+        input.position(start + length);
+        return state;
+    }
+
+    /**
+     * Runs the machine from state 0 over the given bytes, reading each as a Latin-1 character.
+     * @param input the input bytes
+     * @return the output bytes, one per input byte
+     * @throws BadTableException if the machine has outputs which do not fit in a byte
+     * @throws BadInputException if an input byte has no transition from the state reached
+     */
+    @Override
+    public byte[] interpret(byte[] input) throws BadTableException, BadInputException {
+        checkByteOutputs();
+        byte[] output = new byte[input.length];
+        int state = 0;
+        for (int i = 0; i < input.length; i++) {
+            int slot = byteSlot(state, input[i] & 0xFF);
+            if (slot < 0) {
+                throw new BadInputException(i);
+            }
+            output[i] = (byte) this.out[slot];
+            state = this.next[slot];
+        }
+        return output;
+    }
+
+    /**
+     * Runs the machine from the given state over the remaining bytes in a buffer, reading the backing arrays directly
+     * when both buffers have them and using absolute gets and puts otherwise, so direct buffers are never copied.
+     * @param state the compiled state to start from
+     * @param input the buffer of input bytes
+     * @param output the buffer to write output bytes to
+     * @return the state reached
+     * @throws BadTableException if the machine has outputs which do not fit in a byte
+     * @throws BadInputException if an input byte has no transition from the state reached
+     */
+    @Override
+    public int interpret(int state, ByteBuffer input, ByteBuffer output) throws BadTableException, BadInputException {
+        checkByteOutputs();
+        int length = Math.min(input.remaining(), output.remaining());
+        int start = input.position();
+        int to = output.position();
+        int i = 0;
+        try {
+            if (input.hasArray() && output.hasArray()) {
+                byte[] in = input.array();
+                byte[] written = output.array();
+                int from = input.arrayOffset() + start;
+                int base = output.arrayOffset() + to;
+                for (; i < length; i++) {
+                    int slot = byteSlot(state, in[from + i] & 0xFF);
+                    if (slot < 0) {
+                        throw new BadInputException(start + i);
+                    }
+                    written[base + i] = (byte) this.out[slot];
+                    state = this.next[slot];
+                }
+            } else {
+                for (; i < length; i++) {
+                    int slot = byteSlot(state, input.get(start + i) & 0xFF);
+                    if (slot < 0) {
+                        throw new BadInputException(start + i);
+                    }
+                    output.put(to + i, (byte) this.out[slot]);
+                    state = this.next[slot];
+                }
+            }
+        } finally {
+            input.position(start + i);
+            output.position(to + i);
+        }
+        return state;
+    }
+
+    /**
+     * Checks that every output of the machine fits in a single Latin-1 byte.
+     * @throws BadTableException if an output does not fit in a byte
+     */
+    private void checkByteOutputs() throws BadTableException {
+        if (!this.byteOutputs) {
+            throw new BadTableException();
+        }
+    }
+
+    /**
+     * Minimizes the machine by partition refinement: states start in one block and are split by the outputs and
+     * next-state blocks of their rows until no block splits further. The blocks are then renumbered breadth-first
+     * from the initial state, which makes the result canonical.
+     * @return the minimized machine
+     */
+    @Override
+    public CompiledMachine minimize() {
+        int width = this.alphabet.length;
+        int[] denseNext = new int[this.stateCount * width];
+        char[] denseOut = new char[this.stateCount * width];
+        for (int state = 0; state < this.stateCount; state++) {
+            for (int column = 0; column < width; column++) {
+                int slot = slot(state, this.alphabet[column]);
+                denseNext[state * width + column] = slot < 0 ? -1 : this.next[slot];
+                denseOut[state * width + column] = slot < 0 ? 0 : this.out[slot];
+            }
+        }
+        int[] block = new int[this.stateCount];
+        int blocks = 1;
+        while (true) {
+            HashMap<RowKey, Integer> signatures = new HashMap<>();
+            int[] refined = new int[this.stateCount];
+            for (int state = 0; state < this.stateCount; state++) {
+                int[] signature = new int[1 + 2 * width];
+                signature[0] = block[state];
+                for (int column = 0; column < width; column++) {
+                    int slot = state * width + column;
+                    signature[1 + 2 * column] = denseNext[slot] < 0 ? -1 : block[denseNext[slot]];
+                    signature[2 + 2 * column] = denseNext[slot] < 0 ? -1 : denseOut[slot];
+                }
+                Integer id = signatures.putIfAbsent(new RowKey(signature), signatures.size());
+                refined[state] = id == null ? signatures.size() - 1 : id;
+            }
+            block = refined;
+            if (signatures.size() == blocks) {
+                break;
+            }
+            blocks = signatures.size();
+        }
+
+        int[] representative = new int[blocks];
+        Arrays.fill(representative, -1);
+        for (int state = 0; state < this.stateCount; state++) {
+            if (representative[block[state]] < 0) {
+                representative[block[state]] = state;
+            }
+        }
+        int[] number = new int[blocks];
+        Arrays.fill(number, -1);
+        int[] order = new int[blocks];
+        int count = 0;
+        number[block[0]] = count;
+        order[count++] = block[0];
+        for (int head = 0; head < count; head++) {
+            int state = representative[order[head]];
+            for (int column = 0; column < width; column++) {
+                int target = denseNext[state * width + column];
+                if (target >= 0 && number[block[target]] < 0) {
+                    number[block[target]] = count;
+                    order[count++] = block[target];
+                }
+            }
+        }
+
+        int[] next = new int[count * width];
+        char[] out = new char[count * width];
+        for (int state = 0; state < count; state++) {
+            int source = representative[order[state]];
+            for (int column = 0; column < width; column++) {
+                int target = denseNext[source * width + column];
+                next[state * width + column] = target < 0 ? -1 : number[block[target]];
+                out[state * width + column] = denseOut[source * width + column];
+            }
+        }
+        return new CompiledMachine(this.alphabet, count, next, out, null, this.prunedStates, this.prunedTransitions);
+    }
+
+    /**
+     * Simple getter method which returns the number of unreachable states dropped when compiling.
+     * @return the number of states pruned
+     */
+    @Override
+    public int getPrunedStateCount() {
+        return this.prunedStates;
+    }
+
+    /**
+     * Simple getter method which returns the number of transitions from unreachable states dropped when compiling.
+     * @return the number of transitions pruned
+     */
+    @Override
+    public int getPrunedTransitionCount() {
+        return this.prunedTransitions;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the machine, counting object headers and array contents.
+     * @return the estimated size in bytes
+     */
+    @Override
+    public long getFootprint() {
+        long bytes = 48;
+        bytes += 16 + 2L * this.alphabet.length;
+        bytes += this.columns == null ? 0 : 16 + 4L * this.columns.length;
+        bytes += 16 + 4L * this.byteColumns.length;
+        bytes += 4 * 16 + (1L + 4 + 4 + 4) * this.stateCount;
+        bytes += 4 * 16 + (2L + 4 + 2 + 2) * this.next.length;
+        bytes += 16 + 2L * this.outputs.length;
+        bytes += this.labels == null ? 0 : 16 + 4L * this.labels.length;
+        return bytes;
+    }
+
+    /**
+     * Returns the representation used by the given state's row.
+     * @param state the compiled state
+     * @return the representation of the state's row
+     */
+    public Representation getRepresentation(int state) {
+        return Representation.values()[this.kinds[state]];
+    }
+
+    /**
+     * Counts the states whose rows use the given representation.
+     * @param representation the representation to count
+     * @return the number of states using the representation
+     */
+    public int getRowCount(Representation representation) {
+        int count = 0;
+        for (byte kind : this.kinds) {
+            if (kind == representation.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the rows of the states using the given representation, counting the
+     * per state layout fields and every slot in their rows.
+     * @param representation the representation to measure
+     * @return the estimated size in bytes
+     */
+    public long getRowFootprint(Representation representation) {
+        long bytes = 0;
+        for (int state = 0; state < this.stateCount; state++) {
+            if (this.kinds[state] == representation.ordinal()) {
+                int end = state + 1 < this.stateCount ? this.bases[state + 1] : this.next.length;
+                bytes += 1 + 4 + 4 + 4 + (2L + 4 + 2 + 2) * (end - this.bases[state]);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Two compiled machines are equal when they have the same alphabet, transitions and state labels. How much was
+     * pruned when compiling them is not compared.
+     * @param other the object to compare with
+     * @return true if the machines are structurally equal and false otherwise
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CompiledMachine)) {
+            return false;
+        }
+        CompiledMachine that = (CompiledMachine) other;
+        return this.hash == that.hash
+                && this.stateCount == that.stateCount
+                && Arrays.equals(this.alphabet, that.alphabet)
+                && Arrays.equals(this.kinds, that.kinds)
+                && Arrays.equals(this.bases, that.bases)
+                && Arrays.equals(this.sizes, that.sizes)
+                && Arrays.equals(this.multipliers, that.multipliers)
+                && Arrays.equals(this.keys, that.keys)
+                && Arrays.equals(this.next, that.next)
+                && Arrays.equals(this.out, that.out)
+                && Arrays.equals(this.labels, that.labels);
+    }
+
+    /**
+     * Returns the structural hash code computed when the machine was built.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    /**
+     * The ways in which a state's row of transitions can be laid out.
+     */
+    public enum Representation {
+        /** A row with one slot per column of the alphabet, indexed directly. */
+        DIRECT,
+        /** A row of slots sorted by input, searched by bisection. */
+        SORTED,
+        /** A row of slots placed by a perfect hash of the input. */
+        HASH
+    }
+
+    /**
+     * Wrapper giving an int array value semantics so it can be used as a hash map key.
+     */
+    private static final class RowKey {
+
+        private final int[] values;
+        private final int hash;
+
+        RowKey(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RowKey && Arrays.equals(this.values, ((RowKey) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+}
@@ -1,10 +1,17 @@
 package impl;
 
+import exceptions.BadTableException;
 import interfaces.IFactory;
 import interfaces.IFiniteStateMachine;
+import interfaces.IMachineRegistry;
+import interfaces.IMultiScanner;
+import interfaces.INondeterministicMachine;
+import interfaces.IRunInterpreter;
 import interfaces.ITransition;
 import interfaces.ITransitionTable;
 
+import java.util.List;
+
 
 /**
  * This class implements a singleton factory.
@@ -65,4 +72,49 @@ public final class Factory implements IFactory {
         return finiteStateMachine;
     }
 
+    /**
+     * Creates an instance of IMachineRegistry for sharing compiled machines between FSMs.
+     * @return the new empty MachineRegistry
+     */
+    @Override
+    public IMachineRegistry makeMachineRegistry() {
+        IMachineRegistry machineRegistry = new MachineRegistry();
+        return machineRegistry;
+    }
+
+    /**
+     * Creates an instance of INondeterministicMachine.
+     * @return the new NondeterministicMachine
+     */
+    @Override
+    public INondeterministicMachine makeNondeterministicMachine() {
+        INondeterministicMachine nondeterministicMachine = new NondeterministicMachine();
+        return nondeterministicMachine;
+    }
+
+    /**
+     * Creates an instance of IRunInterpreter for interpreting run-length encoded input with the given FSM.
+     * @param fsm the FSM to interpret the input with
+     * @return the new RunInterpreter, with no input
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    @Override
+    public IRunInterpreter makeRunInterpreter(IFiniteStateMachine fsm) throws BadTableException {
+        IRunInterpreter runInterpreter = new RunInterpreter(fsm);
+        return runInterpreter;
+    }
+
+    /**
+     * Creates an instance of IMultiScanner for running the given FSMs over the same input in a single pass.
+     * @param fsms the FSMs to run, in the order their outputs are returned
+     * @return the new MultiScanner
+     * @throws BadTableException if an FSM's transition table contains transitions to illegal states or is missing inputs
+     * @throws IllegalArgumentException if an FSM does not compile to a CompiledMachine
+     */
+    @Override
+    public IMultiScanner makeMultiScanner(List<IFiniteStateMachine> fsms) throws BadTableException {
+        IMultiScanner multiScanner = new MultiScanner(fsms);
+        return multiScanner;
+    }
+
 }
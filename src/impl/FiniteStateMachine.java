@@ -3,9 +3,17 @@ package impl;
 import exceptions.BadTableException;
 import exceptions.BadInputException;
 import exceptions.NDTransitionException;
+import interfaces.ICompiledMachine;
 import interfaces.IFiniteStateMachine;
+import interfaces.IOutputConsumer;
 import interfaces.ITransition;
-import interfaces.ITransitionTable;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
 
 /**
  * Class representing a finite state machine.
@@ -13,9 +21,14 @@ import interfaces.ITransitionTable;
  */
 public class FiniteStateMachine implements IFiniteStateMachine {
 
-    private final ITransitionTable transitionTable;
+    private final TransitionTable transitionTable;
     private int startState;
     private boolean validStart;
+    private boolean partial;
+    private boolean reachableOnly;
+    private volatile ICompiledMachine compiled;
+    private volatile ICompiledMachine shared;
+    private volatile int[] sharedLabels;
 
     /**
      * Adds the given transition to the FSM. The current_state of the first transition added to the FSM is treated as the initial state for the FSM.
@@ -32,6 +45,7 @@ public class FiniteStateMachine implements IFiniteStateMachine {
             this.validStart = false;
         }
         this.transitionTable.addTransition(transition);
+        invalidate();
     }
 
     /**
@@ -43,18 +57,221 @@ public class FiniteStateMachine implements IFiniteStateMachine {
      */
     @Override
     public String interpret(String input) throws BadTableException, BadInputException {
-        if (this.transitionTable.hasMissingInputs() || this.transitionTable.hasTransitionsToIllegalStates()) {
-            throw new BadTableException();
+        return machine().interpret(input);
+    }
+
+    /**
+     * This runs the compiled machine over the given input sequence and maps the compiled state it finishes in back to the FSM's state number. An interned FSM runs the shared machine, and when the shared machine merged some of its states, follows its own transition table to tell them apart once the input is known to be good.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @return the state reached after the whole input sequence, as numbered in the FSM's transitions
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    @Override
+    public int getFinalState(String input) throws BadTableException, BadInputException {
+        ICompiledMachine machine = this.shared;
+        int[] labels = this.sharedLabels;
+        if (machine == null) {
+            machine = compile();
+            return machine.getStateLabel(machine.getFinalState(input));
+        }
+        int state = machine.getFinalState(input);
+        if (labels != null) {
+            return labels[state];
+        }
+        state = this.startState;
+        for (int i = 0; i < input.length(); i++) {
+            state = this.transitionTable.getTransition(state, input.charAt(i)).getNextState();
+        }
+        return state;
+    }
+
+    /**
+     * This counts the outputs with the compiled machine and pairs each non-zero count with its output character.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @return the number of times each output character is produced, in ascending order of output
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    @Override
+    public Map<Character, Integer> getOutputHistogram(String input) throws BadTableException, BadInputException {
+        ICompiledMachine machine = machine();
+        int[] counts = machine.countOutputs(input);
+        char[] outputs = machine.getOutputAlphabet();
+        Map<Character, Integer> histogram = new TreeMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                histogram.put(outputs[i], counts[i]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * This runs the compiled machine over the given input sequence until it produces the given output character.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @param output the output character to look for
+     * @return the offset of the first input character whose transition produces the output character, or -1 if it is never produced
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet before the first occurrence of the output
+     */
+    @Override
+    public int indexOfOutput(String input, char output) throws BadTableException, BadInputException {
+        return machine().indexOfOutput(input, output);
+    }
+
+    /**
+     * This runs the compiled machine over the given input sequence, passing each output character to the given consumer.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @param consumer the consumer to receive each output character with the offset of the input character which produced it
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    @Override
+    public void interpret(String input, IOutputConsumer consumer) throws BadTableException, BadInputException {
+        machine().interpret(input, consumer);
+    }
+
+    /**
+     * This runs the compiled machine over the batch of input sequences in sorted order, reusing the states reached along shared prefixes.
+     * @param inputs the input sequences/words to the FSM
+     * @return the output sequence/word generated for each input sequence in the same order, or null for each input sequence which contains a character that is not an element of the input alphabet
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     */
+    @Override
+    public String[] interpret(String[] inputs) throws BadTableException {
+        String[] outputs = new String[inputs.length];
+        machine().interpret(inputs, outputs);
+        return outputs;
+    }
+
+    /**
+     * This runs the finite state machine over a sequence of bytes by running the compiled machine over them directly.
+     * @param input the input sequence/word to the FSM as bytes
+     * @return the output sequence/word generated by this FSM for the given input sequence, one byte per input byte
+     * @throws BadTableException if the transition table (describing the FSM) is bad or has outputs which do not fit in a byte
+     * @throws BadInputException if the given input sequence contains a byte that is not an element of the input alphabet
+     */
+    @Override
+    public byte[] interpret(byte[] input) throws BadTableException, BadInputException {
+        return machine().interpret(input);
+    }
+
+    /**
+     * This runs the finite state machine from its initial state over the remaining bytes of the input buffer.
+     * @param input the buffer of input bytes, which is advanced to its limit
+     * @param output the buffer to write output bytes to, which must have at least as many bytes remaining as the input
+     * @throws BadTableException if the transition table (describing the FSM) is bad or has outputs which do not fit in a byte
+     * @throws BadInputException if the given input sequence contains a byte that is not an element of the input alphabet
+     */
+    @Override
+    public void interpret(ByteBuffer input, ByteBuffer output) throws BadTableException, BadInputException {
+        if (output.remaining() < input.remaining()) {
+            throw new BufferOverflowException();
+        }
+        machine().interpret(0, input, output);
+    }
+
+    /**
+     * Compiles the FSM into an immutable machine holding only the states reachable from the initial state. The
+     * compiled machine is cached until another transition is added or the FSM's settings change. It keeps the FSM's
+     * own state numbers, so it is a separate copy even when the FSM has been interned and runs on a shared machine.
+     * @return the compiled machine
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or, unless the FSM is partial, is missing one or more transitions from states for valid letters in the input alphabet. Only reachable states are checked if the FSM validates reachable states only.
+     */
+    @Override
+    public ICompiledMachine compile() throws BadTableException {
+        ICompiledMachine machine = this.compiled;
+        if (machine == null) {
+            machine = build();
+            this.compiled = machine;
         }
-        char[] inputString = input.toCharArray();
-        int nextState = this.startState;
-        String output = "";
-        for (int i = 0; i < inputString.length; i++) {
-            ITransition transition = this.transitionTable.getTransition(nextState, inputString[i]);
-            output += transition.getOutput();
-            nextState = transition.getNextState();
+        return machine;
+    }
+
+    /**
+     * Compiles the FSM without caching the result, for callers which only need it briefly.
+     * @return the compiled machine
+     * @throws BadTableException if the transition table (describing the FSM) is bad, as for {@link #compile()}
+     */
+    ICompiledMachine build() throws BadTableException {
+        List<ITransition> transitions = this.transitionTable.getTransitions();
+        Reachability reachability = Reachability.analyse(transitions, this.startState);
+        IntPredicate checked = this.reachableOnly ? reachability::isReachable : state -> true;
+        if ((!this.partial && this.transitionTable.hasMissingInputs(checked)) || this.transitionTable.hasTransitionsToIllegalStates(checked)) {
+            throw new BadTableException();
         }
-        return output;
+        return CompiledMachine.compile(transitions, reachability);
+    }
+
+    /**
+     * Makes the FSM run on a shared machine from a registry, dropping its own compiled machine.
+     * @param machine the shared machine, which must be equivalent to the FSM
+     * @param labels the FSM's state number for each state of the shared machine, or null if the shared machine merged
+     *               several of the FSM's states, in which case the final state is found with the FSM's transition table
+     */
+    void share(ICompiledMachine machine, int[] labels) {
+        this.compiled = null;
+        this.sharedLabels = labels;
+        this.shared = machine;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the FSM's transition table, which it keeps after being interned so
+     * that it can still be changed.
+     * @return the estimated size in bytes
+     */
+    long getTableFootprint() {
+        return this.transitionTable.getFootprint();
+    }
+
+    /**
+     * Simple getter method which returns the shared machine the FSM runs on.
+     * @return the machine shared through a registry, or null if the FSM has not been interned since it last changed
+     */
+    public ICompiledMachine getSharedMachine() {
+        return this.shared;
+    }
+
+    /**
+     * Returns the machine to interpret with: the shared machine if the FSM has been interned, and otherwise its own.
+     * @return the compiled machine
+     * @throws BadTableException if the FSM has not been interned and its transition table is bad
+     */
+    private ICompiledMachine machine() throws BadTableException {
+        ICompiledMachine machine = this.shared;
+        return machine != null ? machine : compile();
+    }
+
+    /**
+     * Drops the compiled and shared machines after the FSM changes.
+     */
+    private void invalidate() {
+        this.compiled = null;
+        this.shared = null;
+        this.sharedLabels = null;
+    }
+
+    /**
+     * Sets whether the FSM may be partial. A partial FSM skips the missing inputs check, leaving the transition table
+     * lookup to report a missing transition as bad input when it is reached.
+     * @param partial true to allow missing inputs and false to reject them
+     */
+    @Override
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+        invalidate();
+    }
+
+    /**
+     * Sets whether only the states reachable from the initial state are validated. Unreachable states are never
+     * compiled, so with this set their transitions cannot make the transition table bad.
+     * @param reachableOnly true to validate reachable states only and false to validate every state
+     */
+    @Override
+    public void setValidateReachableOnly(boolean reachableOnly) {
+        this.reachableOnly = reachableOnly;
+        invalidate();
     }
 
     /**
@@ -0,0 +1,301 @@
+package impl;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+
+/**
+ * Class representing a reactive stream stage which runs an FSM over a stream of character chunks. The state of the
+ * FSM is carried from one chunk to the next, and output is batched into fixed size buffers which subscribers may hand
+ * back through {@link #release(CharBuffer)} to be reused.
+ * <p>
+ * Upstream chunks are requested one at a time, and only while the subscriber has outstanding demand and every filled
+ * buffer has been delivered, so a slow subscriber holds back the publisher. A partly filled buffer is delivered at the
+ * end of a chunk when the subscriber has demand for more than the filled buffers, and otherwise once the upstream
+ * completes or fails, so large chunks are still batched into whole buffers. Input with no transition is reported by {@code onError} with a
+ * {@link BadInputException} giving its offset in the whole stream, after the output for the preceding input.
+ *
+ */
+public class FiniteStateMachineProcessor implements Flow.Processor<CharBuffer, CharBuffer> {
+
+    private static final int MAX_POOLED = 16; /** The most released buffers kept for reuse. */
+
+    private final ICompiledMachine machine; /** The compiled FSM being run. */
+    private final int bufferSize; /** The capacity of each output buffer. */
+    private final ArrayDeque<CharBuffer> pool; /** Released buffers ready for reuse. */
+    private final ArrayDeque<CharBuffer> ready; /** Filled buffers waiting for demand. */
+
+    private Flow.Subscription upstream; /** The subscription to the publisher of input chunks. */
+    private Flow.Subscriber<? super CharBuffer> downstream; /** The subscriber to output buffers. */
+    private CharBuffer current; /** The output buffer being filled, or null. */
+    private int state; /** The compiled state reached so far. */
+    private long consumed; /** The number of input characters processed so far. */
+    private long demand; /** The number of buffers requested but not yet delivered. */
+    private boolean requested; /** True while an input chunk has been requested but not received. */
+    private boolean upstreamDone; /** True once no more input chunks will be processed. */
+    private Throwable error; /** The error to deliver once the ready buffers are delivered, or null. */
+    private boolean terminated; /** True once onComplete or onError has been delivered. */
+    private boolean cancelled; /** True once the subscriber has cancelled. */
+    private boolean draining; /** True while a thread is delivering signals. */
+    private boolean missed; /** True if signals arrived while another thread was delivering. */
+
+    /**
+     * Subscribes the given subscriber to the output buffers. Only one subscriber is supported.
+     * @param subscriber the subscriber to output buffers
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super CharBuffer> subscriber) {
+        synchronized (this) {
+            if (this.downstream == null) {
+                this.downstream = subscriber;
+                subscriber = null;
+            }
+        }
+        if (subscriber != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("the processor already has a subscriber"));
+            return;
+        }
+        this.downstream.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                Flow.Subscription subscription = null;
+                synchronized (FiniteStateMachineProcessor.this) {
+                    if (n <= 0) {
+                        subscription = FiniteStateMachineProcessor.this.upstreamDone ? null : FiniteStateMachineProcessor.this.upstream;
+                        FiniteStateMachineProcessor.this.fail(new IllegalArgumentException("non-positive request " + n));
+                    } else {
+                        FiniteStateMachineProcessor.this.demand += Math.min(n, Long.MAX_VALUE - FiniteStateMachineProcessor.this.demand);
+                    }
+                }
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription subscription;
+                synchronized (FiniteStateMachineProcessor.this) {
+                    FiniteStateMachineProcessor.this.cancelled = true;
+                    FiniteStateMachineProcessor.this.ready.clear();
+                    subscription = FiniteStateMachineProcessor.this.upstreamDone ? null : FiniteStateMachineProcessor.this.upstream;
+                    FiniteStateMachineProcessor.this.upstreamDone = true;
+                }
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Stores the subscription to the publisher of input chunks. Input is only requested once the subscriber has demand.
+     * @param subscription the subscription to the publisher
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.upstream != null || this.upstreamDone) {
+                subscription.cancel();
+                return;
+            }
+            this.upstream = subscription;
+        }
+        drain();
+    }
+
+    /**
+     * Runs the FSM over the given chunk of input, filling output buffers from the pool. If the subscriber has demand
+     * left over once the filled buffers are counted, the partly filled buffer is queued too, so output never waits for
+     * more input. If the chunk contains input with no transition, the upstream is cancelled and the error is queued
+     * behind the output produced so far.
+     * @param chunk the chunk of input characters
+     */
+    @Override
+    public void onNext(CharBuffer chunk) {
+        Flow.Subscription subscription = null;
+        synchronized (this) {
+            this.requested = false;
+            if (this.upstreamDone) {
+                return;
+            }
+            try {
+                while (chunk.hasRemaining()) {
+                    if (this.current == null) {
+                        this.current = this.pool.isEmpty() ? CharBuffer.allocate(this.bufferSize) : this.pool.poll();
+                    }
+                    int start = chunk.position();
+                    try {
+                        this.state = this.machine.interpret(this.state, chunk, this.current);
+                    } finally {
+                        this.consumed += chunk.position() - start;
+                    }
+                    if (!this.current.hasRemaining()) {
+                        this.ready.add(this.current.flip());
+                        this.current = null;
+                    }
+                }
+                if (this.demand > this.ready.size()) {
+                    flushCurrent();
+                }
+            } catch (BadInputException e) {
+                fail(new BadInputException(this.consumed));
+                subscription = this.upstream;
+            }
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        drain();
+    }
+
+    /**
+     * Queues the given error from the publisher behind the output produced so far.
+     * @param throwable the error from the publisher
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            if (!this.upstreamDone) {
+                fail(throwable);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Queues the partly filled output buffer and completion behind the output produced so far.
+     */
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            if (!this.upstreamDone) {
+                flushCurrent();
+                this.upstreamDone = true;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Hands a delivered output buffer back to the processor so that it can be reused for later output.
+     * @param buffer a buffer previously delivered by this processor, which the caller must no longer use
+     */
+    public synchronized void release(CharBuffer buffer) {
+        if (buffer.capacity() == this.bufferSize && this.pool.size() < MAX_POOLED) {
+            this.pool.add(buffer.clear());
+        }
+    }
+
+    /**
+     * Records an error to deliver after the output produced so far and stops processing input. Must be called while
+     * holding the lock.
+     * @param throwable the error to deliver
+     */
+    private void fail(Throwable throwable) {
+        flushCurrent();
+        this.error = throwable;
+        this.upstreamDone = true;
+    }
+
+    /**
+     * Queues the partly filled output buffer, if it holds any output. Must be called while holding the lock.
+     */
+    private void flushCurrent() {
+        if (this.current != null && this.current.position() > 0) {
+            this.ready.add(this.current.flip());
+            this.current = null;
+        }
+    }
+
+    /**
+     * Delivers as many signals as the current state allows: ready buffers while there is demand, then the terminal
+     * signal, or else a request for the next input chunk. Only one thread delivers at a time; signals arriving
+     * meanwhile are picked up by that thread, which keeps calls to the subscriber serial and avoids unbounded recursion
+     * when the subscriber requests from inside onNext.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (this.draining) {
+                this.missed = true;
+                return;
+            }
+            this.draining = true;
+        }
+        while (true) {
+            CharBuffer buffer = null;
+            Flow.Subscription subscription = null;
+            Flow.Subscriber<? super CharBuffer> subscriber;
+            boolean terminate = false;
+            Throwable failure = null;
+            synchronized (this) {
+                subscriber = this.downstream;
+                if (subscriber == null || this.cancelled || this.terminated) {
+                    subscriber = null;
+                } else if (!this.ready.isEmpty() && this.demand > 0) {
+                    buffer = this.ready.poll();
+                    this.demand--;
+                } else if (this.ready.isEmpty() && this.upstreamDone) {
+                    this.terminated = true;
+                    terminate = true;
+                    failure = this.error;
+                } else if (this.ready.isEmpty() && this.demand > 0 && !this.requested && this.upstream != null) {
+                    this.requested = true;
+                    subscription = this.upstream;
+                } else {
+                    subscriber = null;
+                }
+                if (subscriber == null) {
+                    if (!this.missed) {
+                        this.draining = false;
+                        return;
+                    }
+                    this.missed = false;
+                    continue;
+                }
+            }
+            if (buffer != null) {
+                subscriber.onNext(buffer);
+            } else if (subscription != null) {
+                subscription.request(1);
+            } else if (terminate && failure != null) {
+                subscriber.onError(failure);
+            } else if (terminate) {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Constructor which compiles the given FSM and sets up an empty buffer pool.
+     * @param fsm the FSM to run over the stream
+     * @param bufferSize the capacity of each output buffer
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    public FiniteStateMachineProcessor(IFiniteStateMachine fsm, int bufferSize) throws BadTableException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        this.machine = fsm.compile();
+        this.bufferSize = bufferSize;
+        this.pool = new ArrayDeque<>();
+        this.ready = new ArrayDeque<>();
+    }
+
+}
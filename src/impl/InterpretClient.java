@@ -0,0 +1,241 @@
+package impl;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class sending interpret requests to an {@link InterpretServer} over a blocking socket channel. Requests are
+ * buffered by send and written by flush, so that several can be pipelined before their responses are received.
+ *
+ */
+public class InterpretClient implements Closeable {
+
+    private final SocketChannel channel; /** The connection to the server. */
+    private ByteBuffer requests; /** Requests sent but not yet flushed, in write mode. */
+    private ByteBuffer header; /** The buffer the length of each response is read into. */
+
+    /**
+     * Class holding the response to one request.
+     */
+    public static final class Response {
+
+        private final int id; /** The id of the request. */
+        private final byte status; /** The status of the response. */
+        private final String[] outputs; /** The output of each word, or null for rejected words. */
+        private final long[] offsets; /** The offset of the bad input in each rejected word, or -1. */
+        private final String message; /** The error message, or null. */
+
+        /**
+         * Simple getter method which returns the id of the request.
+         * @return the request id
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Simple getter method which returns the status of the response.
+         * @return {@link InterpretServer#OK} or an error status
+         */
+        public byte getStatus() {
+            return this.status;
+        }
+
+        /**
+         * Simple getter method which returns the outputs.
+         * @return the output sequence/word of each input word, or null for words with bad input, or null if the request failed
+         */
+        public String[] getOutputs() {
+            return this.outputs;
+        }
+
+        /**
+         * Returns the offset of the first character without a transition in a rejected word.
+         * @param index the index of the word in the request
+         * @return the offset, or -1 if the word was accepted
+         */
+        public long getOffset(int index) {
+            return this.offsets[index];
+        }
+
+        /**
+         * Simple getter method which returns the error message.
+         * @return the message describing why the request failed, or null if it was served
+         */
+        public String getMessage() {
+            return this.message;
+        }
+
+        /**
+         * Simple constructor.
+         * @param id the request id
+         * @param status the status
+         * @param outputs the outputs
+         * @param offsets the offsets of bad input
+         * @param message the error message
+         */
+        Response(int id, byte status, String[] outputs, long[] offsets, String message) {
+            this.id = id;
+            this.status = status;
+            this.outputs = outputs;
+            this.offsets = offsets;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Buffers a request to interpret a batch of words, without writing it.
+     * @param id the request id, which is echoed in the response
+     * @param machine the name of the machine
+     * @param inputs the input sequences/words
+     */
+    public void send(int id, String machine, String... inputs) {
+        byte[] name = machine.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("machine name too long");
+        }
+        long size = 4 + 1 + 2 + name.length + 4;
+        for (String input : inputs) {
+            size += 4 + 2L * input.length();
+        }
+        if (size > InterpretServer.MAX_FRAME) {
+            throw new IllegalArgumentException("request of " + size + " bytes is too large");
+        }
+        if (this.requests.remaining() < 4 + size) {
+            ByteBuffer larger = ByteBuffer.allocate((int) Math.max(this.requests.position() + 4 + size, 2L * this.requests.capacity()));
+            this.requests = larger.put(this.requests.flip());
+        }
+        ByteBuffer request = this.requests;
+        request.putInt((int) size).putInt(id).put(InterpretServer.INTERPRET).putShort((short) name.length).put(name);
+        request.putInt(inputs.length);
+        for (String input : inputs) {
+            request.putInt(input.length());
+            request.asCharBuffer().put(input);
+            request.position(request.position() + 2 * input.length());
+        }
+    }
+
+    /**
+     * Writes every buffered request.
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        this.requests.flip();
+        while (this.requests.hasRemaining()) {
+            this.channel.write(this.requests);
+        }
+        this.requests.clear();
+    }
+
+    /**
+     * Reads the next response, blocking until it arrives.
+     * @return the response
+     * @throws IOException if reading fails or the server closes the connection
+     */
+    public Response receive() throws IOException {
+        this.header.clear();
+        fill(this.header);
+        int length = this.header.flip().getInt();
+        if (length < 5 || length > InterpretServer.MAX_FRAME) {
+            throw new IOException("response frame of " + length + " bytes");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        fill(frame);
+        frame.flip();
+        int id = frame.getInt();
+        byte status = frame.get();
+        if (status != InterpretServer.OK) {
+            byte[] message = new byte[frame.remaining()];
+            frame.get(message);
+            return new Response(id, status, null, null, new String(message, StandardCharsets.UTF_8));
+        }
+        int count = frame.getInt();
+        String[] outputs = new String[count];
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            int n = frame.getInt();
+            if (n < 0) {
+                offsets[i] = -1L - n;
+            } else {
+                char[] chars = new char[n];
+                frame.asCharBuffer().get(chars);
+                frame.position(frame.position() + 2 * n);
+                outputs[i] = new String(chars);
+                offsets[i] = -1;
+            }
+        }
+        return new Response(id, status, outputs, offsets, null);
+    }
+
+    /**
+     * Reads from the channel until the buffer is full.
+     * @param buffer the buffer to fill
+     * @throws IOException if reading fails or the server closes the connection
+     */
+    private void fill(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer) < 0) {
+                throw new EOFException("connection closed by server");
+            }
+        }
+    }
+
+    /**
+     * Sends a single request and waits for its response. Any requests already buffered are flushed with it, and
+     * their responses must have been received first.
+     * @param machine the name of the machine
+     * @param inputs the input sequences/words
+     * @return the response
+     * @throws IOException if the request cannot be sent or the response received
+     */
+    public Response interpret(String machine, String... inputs) throws IOException {
+        send(0, machine, inputs);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Writes every buffered request and then closes the sending side of the connection, telling the server that no
+     * more requests will come. Responses to the requests sent can still be received.
+     * @throws IOException if writing or shutting down fails
+     */
+    public void shutdownOutput() throws IOException {
+        flush();
+        this.channel.shutdownOutput();
+    }
+
+    /**
+     * Closes the connection.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Constructor which connects to a server.
+     * @param address the address of the server, a loopback socket address or a Unix-domain socket address
+     * @throws IOException if the connection fails
+     */
+    public InterpretClient(SocketAddress address) throws IOException {
+        this.channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open(StandardProtocolFamily.INET);
+        this.channel.connect(address);
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        this.requests = ByteBuffer.allocate(1 << 16);
+        this.header = ByteBuffer.allocate(4);
+    }
+
+}
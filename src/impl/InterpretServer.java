@@ -0,0 +1,389 @@
+package impl;
+
+import exceptions.BadInputException;
+import interfaces.ICompiledMachine;
+import interfaces.IMachineRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Class serving interpret requests for named compiled machines over a local socket, so that several processes can
+ * share machines loaded once. A single thread multiplexes every connection with a non-blocking selector.
+ * <p>
+ * Every message is a frame: a four byte big-endian length followed by that many bytes. A request frame holds a four
+ * byte request id, a one byte type, which is {@link #INTERPRET}, the machine name as a two byte length and UTF-8
+ * bytes, a four byte count of input words, and each word as a four byte length and that many UTF-16 characters.
+ * A response frame holds the request id, a one byte status and, for {@link #OK}, the count of words followed by
+ * each word's result: a four byte length and that many UTF-16 output characters, or a negative value -1 - offset
+ * giving the offset of the first input character without a transition. Other statuses are followed by a UTF-8
+ * message. Clients may pipeline requests; responses are sent in the order the requests were received.
+ *
+ */
+public class InterpretServer implements Runnable, Closeable {
+
+    public static final byte INTERPRET = 1; /** Request type for interpreting a batch of words. */
+    public static final byte OK = 0; /** Response status of a request which was served. */
+    public static final byte UNKNOWN_MACHINE = 1; /** Response status of a request naming no loaded machine. */
+    public static final byte BAD_REQUEST = 2; /** Response status of a malformed request. */
+    public static final int MAX_FRAME = 1 << 24; /** The largest frame accepted, in bytes after the length. */
+    private static final int MAX_QUEUED = 1 << 22; /** Bytes of responses queued on a connection beyond which it is not read. */
+    private static final int READ_BUFFER = 1 << 16; /** The initial size of each connection's read buffer. */
+
+    private final Map<String, ICompiledMachine> machines; /** The machines served, by name. */
+    private final Selector selector; /** The selector multiplexing the server and client channels. */
+    private final ServerSocketChannel server; /** The listening channel. */
+    private final SocketAddress address; /** The address the server is bound to. */
+    private volatile boolean closed; /** True once the server has been asked to stop. */
+
+    /**
+     * The state of one client connection.
+     */
+    private static final class Connection {
+
+        private final SocketChannel channel; /** The client channel. */
+        private ByteBuffer input; /** Bytes read but not yet parsed into requests, in write mode. */
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>(); /** Responses not yet written. */
+        private long queued; /** The number of bytes in output. */
+        private boolean ended; /** True once the client has closed its side, after which the connection closes when output is written. */
+
+        /**
+         * Simple constructor which sets up an empty read buffer.
+         * @param channel the client channel
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.input = ByteBuffer.allocate(READ_BUFFER);
+        }
+    }
+
+    /**
+     * Returns the address the server is bound to, which has the actual port when the server was bound to port 0.
+     * @return the socket address
+     */
+    public SocketAddress getAddress() {
+        return this.address;
+    }
+
+    /**
+     * Serves connections until the server is closed. A connection which fails, or whose request makes serving it
+     * throw, is closed on its own; a failure to accept, such as running out of file descriptors, is logged and the
+     * server keeps listening.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!this.closed) {
+                this.selector.select();
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            if (!this.closed) {
+                                System.err.println("InterpretServer: accept failed: " + e);
+                            }
+                        }
+                        continue;
+                    }
+                    try {
+                        if (key.isWritable()) {
+                            write(key);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                    } catch (IOException e) {
+                        drop(key);
+                    } catch (RuntimeException e) {
+                        System.err.println("InterpretServer: dropping connection after " + e);
+                        drop(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("selector failed", e);
+        } finally {
+            for (SelectionKey key : this.selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // the server is shutting down anyway
+                }
+            }
+            try {
+                this.selector.close();
+            } catch (IOException ignored) {
+                // the server is shutting down anyway
+            }
+        }
+    }
+
+    /**
+     * Closes a client connection, leaving the server and every other connection running.
+     * @param key the connection's selection key
+     */
+    private static void drop(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // the connection is being dropped anyway
+        }
+    }
+
+    /**
+     * Accepts a pending connection and registers it for reading.
+     * @throws IOException if accepting fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = this.server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        if (channel.getRemoteAddress() instanceof InetSocketAddress) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        channel.register(this.selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    /**
+     * Reads from a connection and serves every complete request frame read, growing the read buffer for frames
+     * larger than it.
+     * @param key the connection's selection key
+     * @throws IOException if reading fails or the client has sent an oversized frame
+     */
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.channel.read(connection.input) < 0) {
+            connection.ended = true;
+            write(key);
+            return;
+        }
+        ByteBuffer input = connection.input.flip();
+        while (input.remaining() >= 4) {
+            int length = input.getInt(input.position());
+            if (length < 0 || length > MAX_FRAME) {
+                throw new IOException("frame of " + length + " bytes");
+            }
+            if (input.remaining() < 4 + length) {
+                if (input.capacity() < 4 + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(4 + length, 2 * input.capacity()));
+                    connection.input = larger.put(input).flip();
+                    input = connection.input;
+                }
+                break;
+            }
+            int end = input.position() + 4 + length;
+            ByteBuffer frame = input.slice(input.position() + 4, length);
+            input.position(end);
+            ByteBuffer response = serve(frame);
+            connection.output.add(response);
+            connection.queued += response.remaining();
+        }
+        input.compact();
+        write(key);
+    }
+
+    /**
+     * Writes queued responses until they are all written or the socket cannot take more, and selects reading only
+     * while the queue is short enough, so that a client which does not read its responses cannot exhaust memory. Once
+     * the client has closed its side, reading stops and the connection is closed when the last response is written.
+     * @param key the connection's selection key
+     * @throws IOException if writing fails
+     */
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        while (!connection.output.isEmpty()) {
+            ByteBuffer head = connection.output.peek();
+            connection.queued -= connection.channel.write(head);
+            if (head.hasRemaining()) {
+                break;
+            }
+            connection.output.poll();
+        }
+        if (connection.ended && connection.output.isEmpty()) {
+            drop(key);
+            return;
+        }
+        int interest = connection.queued < MAX_QUEUED && !connection.ended ? SelectionKey.OP_READ : 0;
+        key.interestOps(connection.output.isEmpty() ? interest : interest | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Serves one request frame.
+     * @param frame the bytes of the frame after its length
+     * @return the response frame, including its length, ready to write
+     */
+    private ByteBuffer serve(ByteBuffer frame) {
+        int id = frame.remaining() >= 4 ? frame.getInt() : 0;
+        try {
+            if (frame.get() != INTERPRET) {
+                return error(id, BAD_REQUEST, "unknown request type");
+            }
+            byte[] nameBytes = new byte[Short.toUnsignedInt(frame.getShort())];
+            frame.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int count = frame.getInt();
+            if (count < 0 || count > frame.remaining() / 4) {
+                return error(id, BAD_REQUEST, "bad word count " + count);
+            }
+            String[] inputs = new String[count];
+            long size = 0;
+            for (int i = 0; i < count; i++) {
+                int length = frame.getInt();
+                if (length < 0 || length > frame.remaining() / 2) {
+                    return error(id, BAD_REQUEST, "bad word length " + length);
+                }
+                char[] chars = new char[length];
+                frame.asCharBuffer().get(chars);
+                frame.position(frame.position() + 2 * length);
+                inputs[i] = new String(chars);
+                size += 4 + 2L * length;
+            }
+            if (frame.hasRemaining()) {
+                return error(id, BAD_REQUEST, "trailing bytes");
+            }
+            ICompiledMachine machine = this.machines.get(name);
+            if (machine == null) {
+                return error(id, UNKNOWN_MACHINE, "no machine named " + name);
+            }
+            String[] outputs = new String[count];
+            if (count == 1) {
+                try {
+                    outputs[0] = machine.interpret(inputs[0]);
+                } catch (BadInputException e) {
+                    outputs[0] = null;
+                }
+            } else {
+                machine.interpret(inputs, outputs, ICompiledMachine.BatchMode.ADAPTIVE);
+            }
+            ByteBuffer response = ByteBuffer.allocate((int) (4 + 4 + 1 + 4 + size));
+            response.putInt(0).putInt(id).put(OK).putInt(count);
+            for (int i = 0; i < count; i++) {
+                if (outputs[i] == null) {
+                    response.putInt((int) (-1 - offset(machine, inputs[i])));
+                } else {
+                    response.putInt(outputs[i].length());
+                    response.asCharBuffer().put(outputs[i]);
+                    response.position(response.position() + 2 * outputs[i].length());
+                }
+            }
+            return response.putInt(0, response.position() - 4).flip();
+        } catch (BufferUnderflowException e) {
+            return error(id, BAD_REQUEST, "truncated request");
+        }
+    }
+
+    /**
+     * Finds the offset of the first character without a transition in a rejected word.
+     * @param machine the compiled machine
+     * @param input the rejected input sequence/word
+     * @return the offset
+     */
+    private static long offset(ICompiledMachine machine, String input) {
+        try {
+            machine.getFinalState(input);
+            throw new IllegalStateException("word was rejected but has no bad input");
+        } catch (BadInputException e) {
+            return e.getOffset();
+        }
+    }
+
+    /**
+     * Builds an error response.
+     * @param id the request id
+     * @param status the status
+     * @param message the message describing the error
+     * @return the response frame, including its length, ready to write
+     */
+    private static ByteBuffer error(int id, byte status, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer response = ByteBuffer.allocate(4 + 4 + 1 + bytes.length);
+        return response.putInt(response.capacity() - 4).putInt(id).put(status).put(bytes).flip();
+    }
+
+    /**
+     * Stops the server, closing every connection and the listening channel, and removes the socket file of a
+     * Unix-domain server.
+     * @throws IOException if the socket file cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.selector.wakeup();
+        this.server.close();
+        if (this.address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) this.address).getPath());
+        }
+    }
+
+    /**
+     * Loads the machines named on the command line and serves them until the process is stopped. The machines are
+     * interned, so that files describing the same behaviour share one compiled machine.
+     * @param args the address, either a port on the loopback interface or unix: followed by a socket path, then
+     *             name=path pairs naming the .fsm files to serve
+     * @throws Exception if a machine cannot be loaded or the server cannot be bound
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: InterpretServer <port | unix:path> name=file.fsm...");
+            System.exit(2);
+        }
+        IMachineRegistry registry = Factory.getInstance().makeMachineRegistry();
+        Map<String, ICompiledMachine> machines = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            machines.put(pair[0], registry.intern(MachineFile.load(Path.of(pair[1]))));
+        }
+        SocketAddress address = args[0].startsWith("unix:")
+                ? UnixDomainSocketAddress.of(args[0].substring(5))
+                : new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        try (InterpretServer server = new InterpretServer(machines, address)) {
+            System.out.println("serving " + machines.keySet() + " on " + server.getAddress() + ", " + registry);
+            server.run();
+        }
+    }
+
+    /**
+     * Constructor which binds the server to the given address. The server does not serve connections until run.
+     * @param machines the machines to serve, by name
+     * @param address a loopback socket address, whose port may be 0 to pick a free port, or a Unix-domain socket address
+     * @throws IOException if the server cannot be bound
+     */
+    public InterpretServer(Map<String, ICompiledMachine> machines, SocketAddress address) throws IOException {
+        this.machines = Map.copyOf(machines);
+        this.server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open(StandardProtocolFamily.INET);
+        this.server.bind(address);
+        this.server.configureBlocking(false);
+        this.address = this.server.getLocalAddress();
+        this.selector = Selector.open();
+        this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+}
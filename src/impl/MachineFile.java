@@ -0,0 +1,151 @@
+package impl;
+
+import exceptions.NDTransitionException;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Class reading and writing FSMs in the simple text format of .fsm files. Each line holds one transition as four fields
+ * separated by whitespace: the current state, the input, the output and the next state. The first transition's
+ * current state is the initial state. An input or output is a single character, or an escape of the form \\uXXXX for
+ * characters such as spaces which cannot stand alone. Blank lines and lines starting with # are ignored, and the
+ * lines "partial" and "reachable-only" switch on the matching FSM modes.
+ *
+ */
+public final class MachineFile {
+
+    private MachineFile() {
+
+    }
+
+    /**
+     * Reads an FSM from the given .fsm file.
+     * @param file the path of the file, which is read as UTF-8
+     * @return the FSM
+     * @throws IOException if the file cannot be read or a line is malformed
+     * @throws NDTransitionException if two transitions share a current state and input
+     */
+    public static IFiniteStateMachine load(Path file) throws IOException, NDTransitionException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads an FSM in the .fsm format.
+     * @param reader the reader to read lines from
+     * @return the FSM
+     * @throws IOException if reading fails or a line is malformed
+     * @throws NDTransitionException if two transitions share a current state and input
+     */
+    public static IFiniteStateMachine read(Reader reader) throws IOException, NDTransitionException {
+        IFactory factory = Factory.getInstance();
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        BufferedReader lines = new BufferedReader(reader);
+        int number = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            number++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.equals("partial")) {
+                fsm.setPartial(true);
+                continue;
+            }
+            if (line.equals("reachable-only")) {
+                fsm.setValidateReachableOnly(true);
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 4) {
+                throw new IOException("line " + number + ": expected current state, input, output and next state");
+            }
+            try {
+                fsm.addTransition(factory.makeTransition(Integer.parseInt(fields[0]), character(fields[1], number),
+                        character(fields[2], number), Integer.parseInt(fields[3])));
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + number + ": bad state number", e);
+            }
+        }
+        return fsm;
+    }
+
+    /**
+     * Writes the FSM with the given transitions to a .fsm file.
+     * @param transitions the transitions, the first of which leaves the initial state
+     * @param partial true if the FSM may be missing inputs
+     * @param reachableOnly true if the FSM only validates the states reachable from its initial state
+     * @param file the path of the file, which is written as UTF-8
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(List<ITransition> transitions, boolean partial, boolean reachableOnly, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(transitions, partial, reachableOnly, writer);
+        }
+    }
+
+    /**
+     * Writes the FSM with the given transitions in the .fsm format, the directives for its modes followed by one
+     * transition per line in the order given.
+     * @param transitions the transitions, the first of which leaves the initial state
+     * @param partial true if the FSM may be missing inputs
+     * @param reachableOnly true if the FSM only validates the states reachable from its initial state
+     * @param writer the writer to write lines to
+     * @throws IOException if writing fails
+     */
+    public static void write(List<ITransition> transitions, boolean partial, boolean reachableOnly, Writer writer) throws IOException {
+        if (partial) {
+            writer.write("partial\n");
+        }
+        if (reachableOnly) {
+            writer.write("reachable-only\n");
+        }
+        for (ITransition transition : transitions) {
+            writer.write(transition.getCurrentState() + " " + field(transition.getInput()) + " "
+                    + field(transition.getOutput()) + " " + transition.getNextState() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Formats one input or output field, escaping every character other than printable ASCII as \\uXXXX.
+     * @param c the character
+     * @return the field
+     */
+    private static String field(char c) {
+        return c > ' ' && c < 0x7F ? String.valueOf(c) : String.format("\\u%04X", (int) c);
+    }
+
+    /**
+     * Parses one input or output field.
+     * @param field the field
+     * @param number the line number, for error messages
+     * @return the character
+     * @throws IOException if the field is neither a single character nor a \\uXXXX escape
+     */
+    private static char character(String field, int number) throws IOException {
+        if (field.length() == 1) {
+            return field.charAt(0);
+        }
+        if (field.length() == 6 && field.startsWith("\\u")) {
+            try {
+                return (char) Integer.parseInt(field.substring(2), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + number + ": bad escape " + field, e);
+            }
+        }
+        throw new IOException("line " + number + ": expected a single character or \\uXXXX escape, found " + field);
+    }
+
+}
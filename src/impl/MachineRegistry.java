@@ -0,0 +1,159 @@
+package impl;
+
+import exceptions.BadTableException;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMachineRegistry;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * Class representing a registry of shared compiled machines. Each machine is minimized into canonical form and looked
+ * up by structural equality; canonical machines are only weakly held, so once no FSM uses one it can be collected.
+ *
+ */
+public class MachineRegistry implements IMachineRegistry {
+
+    private final WeakHashMap<ICompiledMachine, WeakReference<ICompiledMachine>> canonical; /** The live canonical machines, each mapped to itself. */
+    private long internCount; /** The number of machines interned. */
+    private long sharedCount; /** The number of machines which were already present. */
+    private long bytesSaved; /** The estimated memory saved by minimization and sharing. */
+
+    /**
+     * Compiles and minimizes the given FSM and returns the shared compiled machine for its canonical form. An FSM made
+     * by the factory then runs on the shared machine and drops its own compiled copy, keeping a table of its state
+     * numbers for the shared machine's states when no two of its states were merged, and its transition table so that
+     * it can still be changed. Both are counted against the saving, which is real as long as the FSM is not asked for
+     * its own compiled machine again. Other FSMs keep their own copies, and their savings only materialise once they
+     * are dropped.
+     * @param fsm the FSM to intern
+     * @return the shared compiled machine equivalent to the given FSM
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    @Override
+    public ICompiledMachine intern(IFiniteStateMachine fsm) throws BadTableException {
+        if (!(fsm instanceof FiniteStateMachine)) {
+            return intern(fsm.compile());
+        }
+        ICompiledMachine compiled = ((FiniteStateMachine) fsm).build();
+        ICompiledMachine shared = intern(compiled);
+        int[] labels = labels(compiled, shared);
+        synchronized (this) {
+            this.bytesSaved -= ((FiniteStateMachine) fsm).getTableFootprint() + (labels == null ? 0 : 16 + 4L * labels.length);
+        }
+        ((FiniteStateMachine) fsm).share(shared, labels);
+        return shared;
+    }
+
+    /**
+     * Maps each state of a shared machine to the original state number of the one compiled state it stands for, by
+     * walking both machines in step from their initial states.
+     * @param compiled the FSM's compiled machine, whose states are all reachable
+     * @param shared the equivalent shared machine
+     * @return the original state number of each shared state, or null if some shared state stands for several compiled states
+     */
+    private static int[] labels(ICompiledMachine compiled, ICompiledMachine shared) {
+        if (compiled.getStateCount() != shared.getStateCount()) {
+            return null;
+        }
+        char[] alphabet = compiled.getAlphabet();
+        int[] labels = new int[shared.getStateCount()];
+        int[] partner = new int[compiled.getStateCount()];
+        Arrays.fill(partner, -1);
+        int[] queue = new int[compiled.getStateCount()];
+        int count = 0;
+        partner[0] = 0;
+        queue[count++] = 0;
+        for (int head = 0; head < count; head++) {
+            int state = queue[head];
+            labels[partner[state]] = compiled.getStateLabel(state);
+            for (char input : alphabet) {
+                int next = compiled.getNextState(state, input);
+                if (next >= 0 && partner[next] < 0) {
+                    partner[next] = shared.getNextState(partner[state], input);
+                    queue[count++] = next;
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Minimizes the given compiled machine and returns the shared machine equal to the result, registering the result
+     * if no equal machine is live. Savings are counted against the footprint of the machine passed in.
+     * @param machine the compiled machine to intern
+     * @return the shared compiled machine equivalent to the given machine
+     */
+    @Override
+    public synchronized ICompiledMachine intern(ICompiledMachine machine) {
+        ICompiledMachine minimized = machine.minimize();
+        this.internCount++;
+        WeakReference<ICompiledMachine> reference = this.canonical.get(minimized);
+        ICompiledMachine shared = reference == null ? null : reference.get();
+        if (shared != null) {
+            this.sharedCount++;
+            this.bytesSaved += machine.getFootprint();
+            return shared;
+        }
+        this.canonical.put(minimized, new WeakReference<>(minimized));
+        this.bytesSaved += machine.getFootprint() - minimized.getFootprint();
+        return minimized;
+    }
+
+    /**
+     * Simple getter method which returns the number of machines interned.
+     * @return the number of calls to intern
+     */
+    @Override
+    public synchronized long getInternCount() {
+        return this.internCount;
+    }
+
+    /**
+     * Simple getter method which returns the number of interned machines that were duplicates.
+     * @return the number of interned machines that were duplicates
+     */
+    @Override
+    public synchronized long getSharedCount() {
+        return this.sharedCount;
+    }
+
+    /**
+     * Simple getter method which returns the number of live canonical machines.
+     * @return the number of live canonical machines
+     */
+    @Override
+    public synchronized int getUniqueCount() {
+        return this.canonical.size();
+    }
+
+    /**
+     * Simple getter method which returns the estimated memory saved.
+     * @return the estimated saving in bytes
+     */
+    @Override
+    public synchronized long getBytesSaved() {
+        return this.bytesSaved;
+    }
+
+    /**
+     * Returns a one line summary of the registry's sharing statistics.
+     * @return the summary
+     */
+    @Override
+    public synchronized String toString() {
+        double rate = this.internCount == 0 ? 0 : 100.0 * this.sharedCount / this.internCount;
+        return String.format("interned=%d shared=%d (%.1f%%) unique=%d saved=%d bytes",
+                this.internCount, this.sharedCount, rate, this.canonical.size(), this.bytesSaved);
+    }
+
+    /**
+     * Simple default constructor which initializes an empty registry.
+     */
+    public MachineRegistry() {
+        this.canonical = new WeakHashMap<>();
+    }
+
+}
@@ -0,0 +1,245 @@
+package impl;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMultiScanner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class running many compiled machines over the same input in a single pass. The input is copied a chunk at a time
+ * into one buffer small enough to stay in cache, and the column of each character is found once for all machines
+ * sharing an alphabet. The live machines are then stepped over the chunk in pairs, with their states held in a
+ * primitive vector between chunks; the lookups of the two machines in a pair do not depend on each other, so they
+ * overlap rather than each waiting on the last. Machines are minimized and equal ones merged, so rule sets which
+ * differ only in how their states are numbered or split are run once.
+ *
+ */
+public class MultiScanner implements IMultiScanner {
+
+    private static final int CHUNK = 1024; /** The number of input characters copied into the buffer at a time. */
+
+    private final CompiledMachine[] machines; /** The distinct minimized machines. */
+    private final int[] groups; /** The index in lookups of each distinct machine's alphabet. */
+    private final CompiledMachine[] lookups; /** A machine with each distinct alphabet, used to find the columns of inputs. */
+    private final int[] slotOf; /** For each machine given, in the order given, the index in machines of the distinct machine it runs as. */
+
+    /**
+     * Runs every machine from its initial state over the input.
+     * @param input the input sequence/word
+     * @return the output sequence/word of each machine, in the order the machines were given, or null for each machine which reached a character that has no transition
+     */
+    @Override
+    public String[] interpret(String input) {
+        return interpret(input, null);
+    }
+
+    /**
+     * Runs every distinct machine over the input, or interprets with the machine alone when all the machines given
+     * were merged into one, and shares each distinct machine's output between the machines merged into it.
+     * @param input the input sequence/word
+     * @param offsets filled with the offset of the first character without a transition for each machine, in the order the machines were given, or -1 for each machine which accepted the input; may be null
+     * @return the output sequence/word of each machine, in the order the machines were given, or null for each machine which reached a character that has no transition
+     */
+    @Override
+    public String[] interpret(String input, long[] offsets) {
+        if (offsets != null && offsets.length < this.slotOf.length) {
+            throw new IllegalArgumentException("offsets array of length " + offsets.length + " for " + this.slotOf.length + " machines");
+        }
+        int count = this.machines.length;
+        String[] words = new String[count];
+        long[] failed = new long[count];
+        if (count == 1) {
+            try {
+                words[0] = this.machines[0].interpret(input);
+                failed[0] = -1;
+            } catch (BadInputException e) {
+                failed[0] = e.getOffset();
+            }
+        } else {
+            scan(input, words, failed);
+        }
+        String[] results = new String[this.slotOf.length];
+        for (int j = 0; j < this.slotOf.length; j++) {
+            results[j] = words[this.slotOf[j]];
+            if (offsets != null) {
+                offsets[j] = failed[this.slotOf[j]];
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the distinct machines over the input a chunk at a time, finding the columns of each chunk once per
+     * alphabet and stepping the live machines over it in pairs.
+     * @param input the input sequence/word
+     * @param words filled with the output of each distinct machine, or null for each machine which failed
+     * @param failed filled with the offset of each distinct machine's bad input, or -1 for each machine which accepted the input
+     */
+    private void scan(String input, String[] words, long[] failed) {
+        int count = this.machines.length;
+        int length = input.length();
+        int[] states = new int[count];
+        int[] live = new int[count];
+        char[][] outputs = new char[count][length];
+        for (int m = 0; m < count; m++) {
+            live[m] = m;
+            failed[m] = -1;
+        }
+        int alive = count;
+        char[] chunk = new char[Math.min(length, CHUNK)];
+        int[][] columns = new int[this.lookups.length][chunk.length];
+        boolean[] needed = new boolean[this.lookups.length];
+        for (int from = 0; from < length && alive > 0; from += chunk.length) {
+            int to = Math.min(length, from + chunk.length);
+            int size = to - from;
+            input.getChars(from, to, chunk, 0);
+            Arrays.fill(needed, false);
+            for (int k = 0; k < alive; k++) {
+                needed[this.groups[live[k]]] = true;
+            }
+            for (int g = 0; g < this.lookups.length; g++) {
+                if (needed[g]) {
+                    for (int i = 0; i < size; i++) {
+                        columns[g][i] = this.lookups[g].column(chunk[i]);
+                    }
+                }
+            }
+            for (int k = 0; k < alive; k += 2) {
+                if (k + 1 == alive) {
+                    run(live[k], chunk, columns, 0, size, from, states, failed, outputs);
+                    break;
+                }
+                int a = live[k];
+                int b = live[k + 1];
+                CompiledMachine first = this.machines[a];
+                CompiledMachine second = this.machines[b];
+                int[] firstColumns = columns[this.groups[a]];
+                int[] secondColumns = columns[this.groups[b]];
+                char[] firstOutput = outputs[a];
+                char[] secondOutput = outputs[b];
+                int firstState = states[a];
+                int secondState = states[b];
+                int i = 0;
+                for (; i < size; i++) {
+                    char symbol = chunk[i];
+                    int firstSlot = first.slot(firstState, symbol, firstColumns[i]);
+                    int secondSlot = second.slot(secondState, symbol, secondColumns[i]);
+                    if ((firstSlot | secondSlot) < 0) {
+                        break;
+                    }
+                    firstOutput[from + i] = first.output(firstSlot);
+                    secondOutput[from + i] = second.output(secondSlot);
+                    firstState = first.nextState(firstSlot);
+                    secondState = second.nextState(secondSlot);
+                }
+                states[a] = firstState;
+                states[b] = secondState;
+                if (i < size) {
+                    run(a, chunk, columns, i, size, from, states, failed, outputs);
+                    run(b, chunk, columns, i, size, from, states, failed, outputs);
+                }
+            }
+            for (int k = 0; k < alive; k++) {
+                if (failed[live[k]] >= 0) {
+                    live[k--] = live[--alive];
+                }
+            }
+        }
+        for (int m = 0; m < count; m++) {
+            words[m] = failed[m] < 0 ? new String(outputs[m]) : null;
+        }
+    }
+
+    /**
+     * Steps one machine alone over part of the chunk, recording where it fails.
+     * @param m the index of the distinct machine
+     * @param chunk the buffer of input characters
+     * @param columns the column of each character of the chunk, for each alphabet
+     * @param start the index in the chunk of the first character to step over
+     * @param end the index in the chunk after the last character to step over
+     * @param from the offset in the input of the start of the chunk
+     * @param states the state of each distinct machine, updated with the state reached
+     * @param failed the offset of each distinct machine's bad input or -1, updated if the machine fails
+     * @param outputs the output of each distinct machine, written at the offsets stepped over
+     */
+    private void run(int m, char[] chunk, int[][] columns, int start, int end, int from, int[] states, long[] failed, char[][] outputs) {
+        CompiledMachine machine = this.machines[m];
+        int[] column = columns[this.groups[m]];
+        char[] output = outputs[m];
+        int state = states[m];
+        for (int i = start; i < end; i++) {
+            int slot = machine.slot(state, chunk[i], column[i]);
+            if (slot < 0) {
+                failed[m] = from + i;
+                break;
+            }
+            output[from + i] = machine.output(slot);
+            state = machine.nextState(slot);
+        }
+        states[m] = state;
+    }
+
+    /**
+     * Simple getter method which returns the number of machines given.
+     * @return the number of machines
+     */
+    @Override
+    public int getMachineCount() {
+        return this.slotOf.length;
+    }
+
+    /**
+     * Simple getter method which returns the number of distinct machines run.
+     * @return the number of distinct machines
+     */
+    @Override
+    public int getDistinctCount() {
+        return this.machines.length;
+    }
+
+    /**
+     * Constructor which compiles and minimizes the given FSMs, merging those whose minimized machines are equal, and
+     * groups the distinct machines by alphabet.
+     * @param fsms the FSMs to run, in the order their outputs are returned
+     * @throws BadTableException if an FSM's transition table contains transitions to illegal states or is missing inputs
+     * @throws IllegalArgumentException if an FSM does not compile to a CompiledMachine, whose rows the scan steps through directly
+     */
+    public MultiScanner(List<IFiniteStateMachine> fsms) throws BadTableException {
+        Map<ICompiledMachine, Integer> indices = new HashMap<>();
+        CompiledMachine[] machines = new CompiledMachine[fsms.size()];
+        this.slotOf = new int[fsms.size()];
+        for (int j = 0; j < fsms.size(); j++) {
+            ICompiledMachine compiled = fsms.get(j).compile().minimize();
+            if (!(compiled instanceof CompiledMachine)) {
+                throw new IllegalArgumentException("FSM " + j + " compiles to a " + compiled.getClass().getName() + ", not a CompiledMachine");
+            }
+            CompiledMachine minimized = (CompiledMachine) compiled;
+            Integer index = indices.putIfAbsent(minimized, indices.size());
+            if (index == null) {
+                index = indices.size() - 1;
+                machines[index] = minimized;
+            }
+            this.slotOf[j] = index;
+        }
+        this.machines = Arrays.copyOf(machines, indices.size());
+        Map<String, Integer> alphabets = new HashMap<>();
+        CompiledMachine[] lookups = new CompiledMachine[this.machines.length];
+        this.groups = new int[this.machines.length];
+        for (int m = 0; m < this.machines.length; m++) {
+            Integer group = alphabets.putIfAbsent(new String(this.machines[m].getAlphabet()), alphabets.size());
+            if (group == null) {
+                group = alphabets.size() - 1;
+                lookups[group] = this.machines[m];
+            }
+            this.groups[m] = group;
+        }
+        this.lookups = Arrays.copyOf(lookups, alphabets.size());
+    }
+
+}
@@ -0,0 +1,415 @@
+package impl;
+
+import exceptions.BadInputException;
+import exceptions.NDTransitionException;
+import interfaces.INondeterministicMachine;
+import interfaces.ITransition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Class representing a nondeterministic finite state machine. The set of active states is a bitset of long words,
+ * and each input step ORs together precomputed successor masks for the active states. State sets which recur are
+ * given an id in a lazily built subset construction, so that hot state sets step with a single array read.
+ *
+ */
+public class NondeterministicMachine implements INondeterministicMachine {
+
+    private static final int MAX_CACHED_SETS = 4096; /** The number of state sets cached before the cache is flushed. */
+    private static final int UNKNOWN = -2; /** Marks a subset transition which has not been computed yet. */
+    private static final int EMPTY = -1; /** Marks a subset transition to the empty set. */
+
+    private final ArrayList<ITransition> transitions; /** The transitions in the order they were added. */
+    private int startState; /** The original number of the initial state. */
+    private boolean validStart; /** True until the first transition sets the initial state. */
+
+    private boolean compiled; /** True when the arrays below reflect the current transitions. */
+    private int[] labels; /** The original number of each state; state 0 is the initial state. */
+    private char[] alphabet; /** The input alphabet in ascending order. */
+    private int words; /** The number of longs in a state set. */
+    private long[] masks; /** The successor set for each state and column, words longs each. */
+    private int[] edgeStart; /** The first edge for each state and column; edges are in the order they were added. */
+    private int[] edgeTarget; /** The target state of each edge. */
+    private char[] edgeOutput; /** The output of each edge. */
+
+    private final HashMap<StateSet, Integer> setIds; /** The id of each cached state set. */
+    private final ArrayList<StateSet> sets; /** The cached state sets by id. */
+    private int[] successors; /** The successor id for each cached state set and column. */
+
+    /**
+     * Adds the given transition to the machine, allowing several transitions for the same current_state and input pair.
+     * @param transition the transition to add
+     * @throws NDTransitionException when the transition is null
+     */
+    @Override
+    public synchronized void addTransition(ITransition transition) throws NDTransitionException {
+        if (transition == null) {
+            throw new NDTransitionException();
+        }
+        if (this.validStart) {
+            this.startState = transition.getCurrentState();
+            this.validStart = false;
+        }
+        this.transitions.add(transition);
+        this.compiled = false;
+    }
+
+    /**
+     * Runs the machine over the given input, stepping cached state set ids, and returns the possible final states.
+     * @param input the input sequence/word to the machine
+     * @return the possible final states in ascending order
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    @Override
+    public synchronized int[] getFinalStates(String input) throws BadInputException {
+        compile();
+        int id = intern(start());
+        for (int i = 0; i < input.length(); i++) {
+            id = successor(id, column(input.charAt(i), i), i);
+        }
+        long[] set = this.sets.get(id).bits;
+        int[] states = new int[count(set)];
+        int n = 0;
+        for (int state = next(set, 0); state >= 0; state = next(set, state + 1)) {
+            states[n++] = this.labels[state];
+        }
+        Arrays.sort(states);
+        return states;
+    }
+
+    /**
+     * Runs the machine forwards to find the active states at every offset, then backwards to keep only the states
+     * from which the rest of the input can be consumed, and finally follows the earliest added live transition.
+     * @param input the input sequence/word to the machine
+     * @return the output sequence/word of the chosen path
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    @Override
+    public synchronized String interpret(String input) throws BadInputException {
+        int[] columns = new int[input.length()];
+        long[][] live = live(input, columns);
+        char[] output = new char[input.length()];
+        int state = 0;
+        for (int i = 0; i < columns.length; i++) {
+            int slot = state * this.alphabet.length + columns[i];
+            for (int edge = this.edgeStart[slot]; edge < this.edgeStart[slot + 1]; edge++) {
+                if (contains(live[i + 1], this.edgeTarget[edge])) {
+                    output[i] = this.edgeOutput[edge];
+                    state = this.edgeTarget[edge];
+                    break;
+                }
+            }
+        }
+        return new String(output);
+    }
+
+    /**
+     * Extends the outputs of every path one step at a time, following only transitions into live states.
+     * @param input the input sequence/word to the machine
+     * @return the set of possible output sequences/words
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    @Override
+    public synchronized Set<String> interpretAll(String input) throws BadInputException {
+        int[] columns = new int[input.length()];
+        long[][] live = live(input, columns);
+        HashMap<Integer, Set<String>> paths = new HashMap<>();
+        paths.put(0, new HashSet<>(Set.of("")));
+        for (int i = 0; i < columns.length; i++) {
+            HashMap<Integer, Set<String>> extended = new HashMap<>();
+            for (int state : paths.keySet()) {
+                int slot = state * this.alphabet.length + columns[i];
+                for (int edge = this.edgeStart[slot]; edge < this.edgeStart[slot + 1]; edge++) {
+                    if (contains(live[i + 1], this.edgeTarget[edge])) {
+                        Set<String> outputs = extended.computeIfAbsent(this.edgeTarget[edge], target -> new HashSet<>());
+                        for (String prefix : paths.get(state)) {
+                            outputs.add(prefix + this.edgeOutput[edge]);
+                        }
+                    }
+                }
+            }
+            paths = extended;
+        }
+        Set<String> outputs = new LinkedHashSet<>();
+        for (Set<String> words : paths.values()) {
+            outputs.addAll(words);
+        }
+        return outputs;
+    }
+
+    /**
+     * Computes the live state set at every offset of the input: the states that are reachable from the initial state
+     * and from which the remainder of the input can be consumed.
+     * @param input the input sequence/word to the machine
+     * @param columns filled with the column of each input character
+     * @return the live state set before each input character and after the last
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    private long[][] live(String input, int[] columns) throws BadInputException {
+        compile();
+        long[][] live = new long[columns.length + 1][];
+        int id = intern(start());
+        live[0] = this.sets.get(id).bits;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = column(input.charAt(i), i);
+            id = successor(id, columns[i], i);
+            live[i + 1] = this.sets.get(id).bits;
+        }
+        for (int i = columns.length - 1; i >= 0; i--) {
+            long[] alive = new long[this.words];
+            long[] reached = live[i];
+            for (int state = next(reached, 0); state >= 0; state = next(reached, state + 1)) {
+                int base = (state * this.alphabet.length + columns[i]) * this.words;
+                for (int w = 0; w < this.words; w++) {
+                    if ((this.masks[base + w] & live[i + 1][w]) != 0) {
+                        alive[state >>> 6] |= 1L << state;
+                        break;
+                    }
+                }
+            }
+            live[i] = alive;
+        }
+        return live;
+    }
+
+    /**
+     * Builds the state numbering, successor masks and edge lists from the transitions if they have changed, and
+     * clears the subset cache.
+     */
+    private void compile() {
+        if (this.compiled) {
+            return;
+        }
+        HashMap<Integer, Integer> index = new HashMap<>();
+        ArrayList<Integer> order = new ArrayList<>();
+        TreeSet<Character> inputs = new TreeSet<>();
+        index.put(this.startState, 0);
+        order.add(this.startState);
+        for (ITransition transition : this.transitions) {
+            for (int state : new int[] {transition.getCurrentState(), transition.getNextState()}) {
+                if (!index.containsKey(state)) {
+                    index.put(state, order.size());
+                    order.add(state);
+                }
+            }
+            inputs.add(transition.getInput());
+        }
+        this.labels = new int[order.size()];
+        for (int state = 0; state < order.size(); state++) {
+            this.labels[state] = order.get(state);
+        }
+        this.alphabet = new char[inputs.size()];
+        int i = 0;
+        for (char input : inputs) {
+            this.alphabet[i++] = input;
+        }
+        int width = this.alphabet.length;
+        this.words = (order.size() + 63) >>> 6;
+        this.masks = new long[order.size() * width * this.words];
+        this.edgeStart = new int[order.size() * width + 1];
+        int[] slots = new int[this.transitions.size()];
+        for (int edge = 0; edge < slots.length; edge++) {
+            ITransition transition = this.transitions.get(edge);
+            slots[edge] = index.get(transition.getCurrentState()) * width + Arrays.binarySearch(this.alphabet, transition.getInput());
+            int target = index.get(transition.getNextState());
+            this.masks[slots[edge] * this.words + (target >>> 6)] |= 1L << target;
+            this.edgeStart[slots[edge] + 1]++;
+        }
+        for (int slot = 0; slot < width * order.size(); slot++) {
+            this.edgeStart[slot + 1] += this.edgeStart[slot];
+        }
+        int[] fill = Arrays.copyOf(this.edgeStart, this.edgeStart.length - 1);
+        this.edgeTarget = new int[slots.length];
+        this.edgeOutput = new char[slots.length];
+        for (int edge = 0; edge < slots.length; edge++) {
+            int position = fill[slots[edge]]++;
+            this.edgeTarget[position] = index.get(this.transitions.get(edge).getNextState());
+            this.edgeOutput[position] = this.transitions.get(edge).getOutput();
+        }
+        flush();
+        this.compiled = true;
+    }
+
+    /**
+     * Returns a new state set containing only the initial state.
+     * @return the initial state set
+     */
+    private long[] start() {
+        long[] set = new long[this.words];
+        set[0] = 1L;
+        return set;
+    }
+
+    /**
+     * Finds the column of the given input character.
+     * @param input the input character
+     * @param offset the offset of the character in the input, for error reporting
+     * @return the column of the input
+     * @throws BadInputException if the character is not in the input alphabet
+     */
+    private int column(char input, int offset) throws BadInputException {
+        int column = Arrays.binarySearch(this.alphabet, input);
+        if (column < 0) {
+            throw new BadInputException(offset);
+        }
+        return column;
+    }
+
+    /**
+     * Returns the id of the set reached from the given cached set on the given column, computing it by ORing the
+     * successor masks of every active state the first time it is needed.
+     * @param id the id of the current state set
+     * @param column the column of the input
+     * @param offset the offset of the input character, for error reporting
+     * @return the id of the next state set
+     * @throws BadInputException if the next state set is empty
+     */
+    private int successor(int id, int column, int offset) throws BadInputException {
+        int width = this.alphabet.length;
+        int cached = this.successors[id * width + column];
+        if (cached == UNKNOWN) {
+            long[] current = this.sets.get(id).bits;
+            long[] target = new long[this.words];
+            boolean empty = true;
+            for (int state = next(current, 0); state >= 0; state = next(current, state + 1)) {
+                int base = (state * width + column) * this.words;
+                for (int w = 0; w < this.words; w++) {
+                    target[w] |= this.masks[base + w];
+                    empty &= target[w] == 0;
+                }
+            }
+            if (empty) {
+                cached = EMPTY;
+            } else {
+                if (this.sets.size() >= MAX_CACHED_SETS) {
+                    flush();
+                    id = intern(current);
+                }
+                cached = intern(target);
+            }
+            this.successors[id * width + column] = cached;
+        }
+        if (cached == EMPTY) {
+            throw new BadInputException(offset);
+        }
+        return cached;
+    }
+
+    /**
+     * Returns the id of the given state set, adding it to the cache if it is not already present.
+     * @param bits the state set
+     * @return the id of the state set
+     */
+    private int intern(long[] bits) {
+        StateSet set = new StateSet(bits);
+        Integer id = this.setIds.get(set);
+        if (id != null) {
+            return id;
+        }
+        int width = this.alphabet.length;
+        if ((this.sets.size() + 1) * width > this.successors.length) {
+            int length = this.successors.length;
+            this.successors = Arrays.copyOf(this.successors, Math.max(2 * length, (this.sets.size() + 1) * width));
+            Arrays.fill(this.successors, length, this.successors.length, UNKNOWN);
+        }
+        this.setIds.put(set, this.sets.size());
+        this.sets.add(set);
+        return this.sets.size() - 1;
+    }
+
+    /**
+     * Empties the subset cache.
+     */
+    private void flush() {
+        this.setIds.clear();
+        this.sets.clear();
+        this.successors = new int[0];
+    }
+
+    /**
+     * Finds the first state in the set at or after the given state.
+     * @param set the state set
+     * @param from the state to start from
+     * @return the first state in the set at or after from, or -1 if there is none
+     */
+    private static int next(long[] set, int from) {
+        int w = from >>> 6;
+        if (w >= set.length) {
+            return -1;
+        }
+        long bits = set[w] & (-1L << from);
+        while (bits == 0) {
+            if (++w == set.length) {
+                return -1;
+            }
+            bits = set[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Counts the states in a state set.
+     * @param set the state set
+     * @return the number of states in the set
+     */
+    private static int count(long[] set) {
+        int count = 0;
+        for (int w = 0; w < set.length; w++) {
+            count += Long.bitCount(set[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the given state is in the set.
+     * @param set the state set
+     * @param state the state
+     * @return true if the state is in the set and false otherwise
+     */
+    private static boolean contains(long[] set, int state) {
+        return (set[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Simple constructor which initializes an empty machine and sets the validStart boolean value to true, so that
+     * the first transition added determines the initial state.
+     */
+    public NondeterministicMachine() {
+        this.transitions = new ArrayList<>();
+        this.validStart = true;
+        this.setIds = new HashMap<>();
+        this.sets = new ArrayList<>();
+        this.successors = new int[0];
+    }
+
+    /**
+     * Wrapper giving a state set value semantics so it can be used as a hash map key.
+     */
+    private static final class StateSet {
+
+        private final long[] bits;
+        private final int hash;
+
+        StateSet(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateSet && Arrays.equals(this.bits, ((StateSet) other).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+}
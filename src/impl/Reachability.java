@@ -0,0 +1,177 @@
+package impl;
+
+import interfaces.ITransition;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing the result of a reachability analysis of an FSM's transitions from its initial state. States are
+ * mapped to dense indices and the transition graph is held in primitive arrays, so the breadth-first search allocates
+ * no per-state objects. Reachable states are numbered in the order the search visits them, following the transitions
+ * of each state in ascending order of input.
+ *
+ */
+public final class Reachability {
+
+    private final int[] states; /** Every state number in the transitions, in ascending order. */
+    private final int[] order; /** The breadth-first position of each state in states, or -1 if unreachable. */
+    private final int[] reachable; /** The reachable state numbers in breadth-first order. */
+    private final int transitionCount; /** The number of transitions analysed. */
+    private final int reachableTransitionCount; /** The number of transitions from reachable states. */
+
+    /**
+     * Finds the states reachable from the given initial state by an iterative breadth-first search.
+     * @param transitions the transitions of the FSM
+     * @param startState the initial state of the FSM
+     * @return the analysis
+     */
+    public static Reachability analyse(List<ITransition> transitions, int startState) {
+        int count = transitions.size();
+        int[] all = new int[2 * count + 1];
+        for (int i = 0; i < count; i++) {
+            all[2 * i] = transitions.get(i).getCurrentState();
+            all[2 * i + 1] = transitions.get(i).getNextState();
+        }
+        all[2 * count] = startState;
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        int[] states = Arrays.copyOf(all, distinct);
+
+        int[] source = new int[count];
+        int[] edgeStart = new int[distinct + 1];
+        for (int i = 0; i < count; i++) {
+            source[i] = Arrays.binarySearch(states, transitions.get(i).getCurrentState());
+            edgeStart[source[i] + 1]++;
+        }
+        for (int state = 0; state < distinct; state++) {
+            edgeStart[state + 1] += edgeStart[state];
+        }
+        long[] edges = new long[count];
+        int[] fill = Arrays.copyOf(edgeStart, distinct);
+        for (int i = 0; i < count; i++) {
+            ITransition transition = transitions.get(i);
+            long target = Arrays.binarySearch(states, transition.getNextState());
+            edges[fill[source[i]]++] = ((long) transition.getInput() << 32) | target;
+        }
+        for (int state = 0; state < distinct; state++) {
+            Arrays.sort(edges, edgeStart[state], edgeStart[state + 1]);
+        }
+
+        int[] order = new int[distinct];
+        Arrays.fill(order, -1);
+        int[] queue = new int[distinct];
+        int tail = 0;
+        int start = Arrays.binarySearch(states, startState);
+        order[start] = tail;
+        queue[tail++] = start;
+        int reachableTransitions = 0;
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            reachableTransitions += edgeStart[state + 1] - edgeStart[state];
+            for (int edge = edgeStart[state]; edge < edgeStart[state + 1]; edge++) {
+                int target = (int) edges[edge];
+                if (order[target] < 0) {
+                    order[target] = tail;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        int[] reachable = new int[tail];
+        for (int i = 0; i < tail; i++) {
+            reachable[i] = states[queue[i]];
+        }
+        return new Reachability(states, order, reachable, count, reachableTransitions);
+    }
+
+    /**
+     * Returns the breadth-first position of the given state.
+     * @param state the state number
+     * @return the position of the state in breadth-first order, or -1 if it is unreachable or unknown
+     */
+    public int indexOf(int state) {
+        int index = Arrays.binarySearch(this.states, state);
+        return index < 0 ? -1 : this.order[index];
+    }
+
+    /**
+     * Checks whether the given state is reachable from the initial state.
+     * @param state the state number
+     * @return true if the state is reachable and false otherwise
+     */
+    public boolean isReachable(int state) {
+        return indexOf(state) >= 0;
+    }
+
+    /**
+     * Returns the reachable state numbers in breadth-first order, starting with the initial state.
+     * @return a copy of the reachable states
+     */
+    public int[] getReachableStates() {
+        return this.reachable.clone();
+    }
+
+    /**
+     * Simple getter method which returns the number of distinct states in the transitions, including the initial state.
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return this.states.length;
+    }
+
+    /**
+     * Simple getter method which returns the number of reachable states.
+     * @return the number of reachable states
+     */
+    public int getReachableStateCount() {
+        return this.reachable.length;
+    }
+
+    /**
+     * Simple getter method which returns the number of unreachable states.
+     * @return the number of states pruned
+     */
+    public int getPrunedStateCount() {
+        return this.states.length - this.reachable.length;
+    }
+
+    /**
+     * Simple getter method which returns the number of transitions from unreachable states.
+     * @return the number of transitions pruned
+     */
+    public int getPrunedTransitionCount() {
+        return this.transitionCount - this.reachableTransitionCount;
+    }
+
+    /**
+     * Returns a one line summary of the pruning statistics.
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("reachable %d of %d states, pruned %d states and %d of %d transitions",
+                this.reachable.length, this.states.length, getPrunedStateCount(), getPrunedTransitionCount(), this.transitionCount);
+    }
+
+    /**
+     * Constructor which takes ownership of the given arrays.
+     * @param states every state number in ascending order
+     * @param order the breadth-first position of each state, or -1
+     * @param reachable the reachable state numbers in breadth-first order
+     * @param transitionCount the number of transitions analysed
+     * @param reachableTransitionCount the number of transitions from reachable states
+     */
+    private Reachability(int[] states, int[] order, int[] reachable, int transitionCount, int reachableTransitionCount) {
+        this.states = states;
+        this.order = order;
+        this.reachable = reachable;
+        this.transitionCount = transitionCount;
+        this.reachableTransitionCount = reachableTransitionCount;
+    }
+
+}
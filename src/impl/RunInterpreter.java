@@ -0,0 +1,303 @@
+package impl;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import interfaces.ICompiledMachine;
+import interfaces.IFiniteStateMachine;
+import interfaces.IRunInterpreter;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class interpreting run-length encoded input with a compiled machine. A block's effect on the state is a map from
+ * state to state, and repeating the block composes the map with itself; by tabulating the maps for 1, 2, 4, ...
+ * repetitions, the state after n repetitions is found with one lookup per bit of n. The tables are built for a block
+ * the first time it is repeated at least as many times as the machine has states, since fewer repetitions are
+ * cheaper to step through, and are kept for later runs of the same block. Output is recorded as the runs with the
+ * state each began in, and expanded by stepping the machine from the state at the requested offset.
+ *
+ */
+public class RunInterpreter implements IRunInterpreter {
+
+    private static final int LEVELS = 63; /** The number of repetition tables needed for any positive long count. */
+    private static final int CHUNK = 4096; /** The number of input characters expanded at a time when expanding output. */
+
+    private final ICompiledMachine machine; /** The compiled machine which interprets the input. */
+    private final HashMap<String, int[][]> tables; /** The repetition tables of each block, by block. */
+    private String[] blocks; /** The block of each run. */
+    private long[] repeats; /** The number of repetitions of each run. */
+    private long[] starts; /** The offset of the first input character of each run. */
+    private int[] states; /** The compiled state each run began in. */
+    private int runCount; /** The number of runs added since the last reset. */
+    private int state; /** The compiled state reached after all the input. */
+    private long length; /** The number of input characters added since the last reset. */
+
+    /**
+     * Adds a run of a single repeated character to the input.
+     * @param symbol the input character
+     * @param repeat the number of times the character is repeated, which may be zero
+     * @throws BadInputException if the run reaches a character that has no transition
+     */
+    @Override
+    public void addRun(char symbol, long repeat) throws BadInputException {
+        addRun(String.valueOf(symbol), repeat);
+    }
+
+    /**
+     * Adds a run of a repeated block of characters to the input, using the block's repetition tables when it has
+     * them or is repeated often enough to be worth building them, and otherwise stepping through every repetition.
+     * @param block the block of input characters
+     * @param repeat the number of times the block is repeated, which may be zero
+     * @throws BadInputException if the run reaches a character that has no transition
+     */
+    @Override
+    public void addRun(String block, long repeat) throws BadInputException {
+        if (repeat < 0) {
+            throw new IllegalArgumentException("negative repeat count " + repeat);
+        }
+        if (repeat == 0 || block.isEmpty()) {
+            return;
+        }
+        long end = Math.addExact(this.length, Math.multiplyExact(block.length(), repeat));
+        char[] chars = block.toCharArray();
+        int[][] powers = this.tables.get(block);
+        int reached;
+        if (powers == null && repeat < this.machine.getStateCount()) {
+            reached = this.state;
+            for (long k = 0; k < repeat; k++) {
+                int after = step(chars, reached, chars.length);
+                if (after < 0) {
+                    throw new BadInputException(this.length + k * chars.length + failure(chars, reached));
+                }
+                reached = after;
+            }
+        } else {
+            if (powers == null) {
+                powers = new int[LEVELS][];
+                powers[0] = new int[this.machine.getStateCount()];
+                for (int from = 0; from < powers[0].length; from++) {
+                    powers[0][from] = step(chars, from, chars.length);
+                }
+                this.tables.put(block, powers);
+            }
+            reached = advance(powers, this.state, repeat);
+            if (reached < 0) {
+                long k = 0;
+                int alive = this.state;
+                for (int level = LEVELS - 1; level >= 0; level--) {
+                    if (k + (1L << level) < repeat) {
+                        int after = level(powers, level)[alive];
+                        if (after >= 0) {
+                            alive = after;
+                            k += 1L << level;
+                        }
+                    }
+                }
+                throw new BadInputException(this.length + k * chars.length + failure(chars, alive));
+            }
+        }
+        if (this.runCount == this.blocks.length) {
+            int capacity = 2 * this.runCount;
+            this.blocks = Arrays.copyOf(this.blocks, capacity);
+            this.repeats = Arrays.copyOf(this.repeats, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.states = Arrays.copyOf(this.states, capacity);
+        }
+        this.blocks[this.runCount] = block;
+        this.repeats[this.runCount] = repeat;
+        this.starts[this.runCount] = this.length;
+        this.states[this.runCount] = this.state;
+        this.runCount++;
+        this.state = reached;
+        this.length = end;
+    }
+
+    /**
+     * Steps the machine through the first characters of a block.
+     * @param chars the block
+     * @param state the compiled state to start from
+     * @param count the number of characters to step through
+     * @return the compiled state reached, or -1 if a character has no transition
+     */
+    private int step(char[] chars, int state, int count) {
+        for (int i = 0; i < count && state >= 0; i++) {
+            state = this.machine.getNextState(state, chars[i]);
+        }
+        return state;
+    }
+
+    /**
+     * Finds the first character of a block which has no transition from the state reached.
+     * @param chars the block
+     * @param state the compiled state to start from, from which the block is known to fail
+     * @return the offset of the character within the block
+     */
+    private int failure(char[] chars, int state) {
+        int i = 0;
+        while (state >= 0) {
+            state = this.machine.getNextState(state, chars[i++]);
+        }
+        return i - 1;
+    }
+
+    /**
+     * Returns the table of the state reached from each state after 2^level repetitions of a block, composing the
+     * table below with itself the first time it is needed.
+     * @param powers the repetition tables of the block
+     * @param level the level of the table
+     * @return the table, holding -1 for states from which the repetitions fail
+     */
+    private static int[] level(int[][] powers, int level) {
+        if (powers[level] == null) {
+            int[] half = level(powers, level - 1);
+            int[] table = new int[half.length];
+            for (int from = 0; from < table.length; from++) {
+                table[from] = half[from] < 0 ? -1 : half[half[from]];
+            }
+            powers[level] = table;
+        }
+        return powers[level];
+    }
+
+    /**
+     * Finds the state reached after a number of repetitions of a block, taking one table lookup per bit of the count.
+     * @param powers the repetition tables of the block
+     * @param state the compiled state to start from
+     * @param count the number of repetitions
+     * @return the compiled state reached, or -1 if the repetitions fail
+     */
+    private static int advance(int[][] powers, int state, long count) {
+        for (int level = 0; count != 0 && state >= 0; level++, count >>>= 1) {
+            if ((count & 1) != 0) {
+                state = level(powers, level)[state];
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Simple getter method which returns the original number of the state reached.
+     * @return the state reached, as numbered in the FSM's transitions
+     */
+    @Override
+    public int getState() {
+        return this.machine.getStateLabel(this.state);
+    }
+
+    /**
+     * Simple getter method which returns the number of input characters added.
+     * @return the length of the input
+     */
+    @Override
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Expands part of the output by finding the state at its first offset, from the run containing it, and then
+     * running the machine over the input tiled from the runs a chunk at a time.
+     * @param offset the offset of the first output character to expand
+     * @param length the number of output characters to expand
+     * @return the output characters
+     */
+    @Override
+    public String getOutput(long offset, int length) {
+        if (offset < 0 || length < 0 || offset > this.length - length) {
+            throw new IndexOutOfBoundsException("output " + offset + "+" + length + " outside length " + this.length);
+        }
+        if (length == 0) {
+            return "";
+        }
+        int run = Arrays.binarySearch(this.starts, 0, this.runCount, offset);
+        run = run < 0 ? -run - 2 : run;
+        char[] block = this.blocks[run].toCharArray();
+        long into = offset - this.starts[run];
+        long repetition = into / block.length;
+        int position = (int) (into % block.length);
+        int[][] powers = this.tables.get(this.blocks[run]);
+        int current = this.states[run];
+        if (powers != null) {
+            current = advance(powers, current, repetition);
+        } else {
+            for (long k = 0; k < repetition; k++) {
+                current = step(block, current, block.length);
+            }
+        }
+        current = step(block, current, position);
+
+        char[] input = new char[Math.min(length, CHUNK)];
+        char[] output = new char[length];
+        CharBuffer written = CharBuffer.wrap(output);
+        while (written.hasRemaining()) {
+            int count = Math.min(input.length, written.remaining());
+            for (int filled = 0; filled < count; ) {
+                if (block.length == 1) {
+                    int take = (int) Math.min(count - filled, this.repeats[run] - repetition);
+                    Arrays.fill(input, filled, filled + take, block[0]);
+                    filled += take;
+                    repetition += take;
+                } else {
+                    int take = Math.min(count - filled, block.length - position);
+                    System.arraycopy(block, position, input, filled, take);
+                    filled += take;
+                    position += take;
+                    if (position == block.length) {
+                        position = 0;
+                        repetition++;
+                    }
+                }
+                if (repetition == this.repeats[run] && run + 1 < this.runCount) {
+                    run++;
+                    repetition = 0;
+                    block = this.blocks[run].toCharArray();
+                }
+            }
+            try {
+                current = this.machine.interpret(current, CharBuffer.wrap(input, 0, count), written);
+            } catch (BadInputException e) {
+                throw new IllegalStateException("input was checked when its run was added", e);
+            }
+        }
+        return new String(output);
+    }
+
+    /**
+     * Expands all of the output.
+     * @return the output sequence/word
+     */
+    @Override
+    public String getOutput() {
+        if (this.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("output of length " + this.length + " is too long for a string");
+        }
+        return getOutput(0, (int) this.length);
+    }
+
+    /**
+     * Removes all the runs, keeping the repetition tables.
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(this.blocks, 0, this.runCount, null);
+        this.runCount = 0;
+        this.state = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Constructor which compiles the given FSM and starts with no input.
+     * @param fsm the FSM to interpret the input with
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    public RunInterpreter(IFiniteStateMachine fsm) throws BadTableException {
+        this.machine = fsm.compile();
+        this.tables = new HashMap<>();
+        this.blocks = new String[8];
+        this.repeats = new long[8];
+        this.starts = new long[8];
+        this.states = new int[8];
+    }
+
+}
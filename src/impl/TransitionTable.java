@@ -6,7 +6,10 @@ import interfaces.ITransition;
 import interfaces.ITransitionTable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.function.IntPredicate;
 
 /**
  * Class representing a transition table for an FSM.
@@ -14,9 +17,12 @@ import java.util.HashSet;
  */
 public class TransitionTable implements ITransitionTable {
 
+    private static final int INITIAL_INDEX = 8; /** The initial number of slots in the hash table, a power of two. */
+
     private ArrayList<ITransition> transitionTable; /** An array list containing all the transitions in the table. */
     private HashSet<Integer> validStates; /** A hashset containing all the valid states in the transition table. */
     private HashSet<Character> validInputs; /** A hashset containing all the valid inputs in the transition table. */
+    private int[] index; /** Open-addressing hash table of positions in transitionTable plus one, keyed on current state and input; 0 marks an empty slot. */
 
     /**
      * This method is a simple add methods which uses a try/catch loop to check if the transition table already
@@ -32,15 +38,23 @@ public class TransitionTable implements ITransitionTable {
             throw new NDTransitionException();
         } catch (BadInputException e) {
             this.transitionTable.add(transition);
+            if (2 * this.transitionTable.size() > this.index.length) {
+                this.index = new int[2 * this.index.length];
+                for (int position = 0; position < this.transitionTable.size(); position++) {
+                    ITransition added = this.transitionTable.get(position);
+                    this.index[free(added.getCurrentState(), added.getInput())] = position + 1;
+                }
+            } else {
+                this.index[free(transition.getCurrentState(), transition.getInput())] = this.transitionTable.size();
+            }
             this.validStates.add(transition.getCurrentState());
             this.validInputs.add(transition.getInput());
         }
     }
 
     /**
-     * This method is a simple getter method which uses a for loop to cycle through every transition in
-     * the table and select the one with the given current state and input. A BadInputException is thrown
-     * if the value is not in the table.
+     * This method is a simple getter method which looks up the transition with the given current state and input
+     * in a hash table keyed on both. A BadInputException is thrown if the value is not in the table.
      * @param current_state the current state to use
      * @param input the input to use
      * @return the ITransition object for the given state and input
@@ -48,14 +62,54 @@ public class TransitionTable implements ITransitionTable {
      */
     @Override
     public ITransition getTransition(int current_state, char input) throws BadInputException {
-        for (int i = 0; i < this.transitionTable.size(); i++) {
-            int thisState = this.transitionTable.get(i).getCurrentState();
-            char thisInput = this.transitionTable.get(i).getInput();
-            if (thisState == current_state && thisInput == input) {
-                return this.transitionTable.get(i);
+        ITransition transition = find(current_state, input);
+        if (transition == null) {
+            throw new BadInputException();
+        }
+        return transition;
+    }
+
+    /**
+     * Looks up the transition with the given current state and input by linear probing from the pair's hash.
+     * @param state the current state
+     * @param input the input
+     * @return the transition, or null if there is none
+     */
+    private ITransition find(int state, char input) {
+        int mask = this.index.length - 1;
+        for (int slot = hash(state, input) & mask; this.index[slot] != 0; slot = (slot + 1) & mask) {
+            ITransition transition = this.transitionTable.get(this.index[slot] - 1);
+            if (transition.getCurrentState() == state && transition.getInput() == input) {
+                return transition;
             }
         }
-        throw new BadInputException();
+        return null;
+    }
+
+    /**
+     * Finds the empty slot where a pair not yet in the table belongs.
+     * @param state the current state
+     * @param input the input
+     * @return the index of the slot
+     */
+    private int free(int state, char input) {
+        int mask = this.index.length - 1;
+        int slot = hash(state, input) & mask;
+        while (this.index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Combines a current state and input into a well mixed hash.
+     * @param state the current state
+     * @param input the input
+     * @return the hash of the pair
+     */
+    private static int hash(int state, char input) {
+        long key = ((long) state << 16 | input) * 0x9E3779B97F4A7C15L;
+        return (int) (key ^ key >>> 32);
     }
 
     /**
@@ -65,11 +119,22 @@ public class TransitionTable implements ITransitionTable {
      */
     @Override
     public boolean hasTransitionsToIllegalStates() {
+        return hasTransitionsToIllegalStates(state -> true);
+    }
+
+    /**
+     * This method checks the transitions from the given states only, so that transitions from states which can never
+     * be reached do not make the table illegal.
+     * @param states the current states whose transitions are checked
+     * @return true if a transition from one of the given states leads to an illegal (non-existent) state and false otherwise
+     */
+    @Override
+    public boolean hasTransitionsToIllegalStates(IntPredicate states) {
         if (this.transitionTable.size() == 1) {
             return false;
         }
         for (ITransition transition : this.transitionTable) {
-            if (!this.validStates.contains(transition.getNextState())) {
+            if (states.test(transition.getCurrentState()) && !this.validStates.contains(transition.getNextState())) {
                 return true;
             }
         }
@@ -82,16 +147,62 @@ public class TransitionTable implements ITransitionTable {
      */
     @Override
     public boolean hasMissingInputs() {
-        try {
-            for (Integer state : this.validStates) {
-                for (Character input : this.validInputs) {
-                    getTransition(state, input);
+        for (Integer state : this.validStates) {
+            for (Character input : this.validInputs) {
+                if (find(state, input) == null) {
+                    return true;
                 }
             }
-            return false;
-        } catch (BadInputException e) {
-            return true;
         }
+        return false;
+    }
+
+    /**
+     * Checks whether any of the given states is missing a transition for an input used by the given states. Inputs only
+     * used by other states are not required.
+     * @param states the current states which are checked
+     * @return true if one of the given states is missing a transition for an input used by the given states and false otherwise
+     */
+    @Override
+    public boolean hasMissingInputs(IntPredicate states) {
+        HashSet<Integer> checkedStates = new HashSet<>();
+        HashSet<Character> checkedInputs = new HashSet<>();
+        for (ITransition transition : this.transitionTable) {
+            if (states.test(transition.getCurrentState())) {
+                checkedStates.add(transition.getCurrentState());
+                checkedInputs.add(transition.getInput());
+            }
+        }
+        for (Integer state : checkedStates) {
+            for (Character input : checkedInputs) {
+                if (find(state, input) == null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Simple getter method which returns a read-only view of the transitions in the table, in the order
+     * in which they were added.
+     * @return a read-only view of the transitions in the table
+     */
+    @Override
+    public List<ITransition> getTransitions() {
+        return Collections.unmodifiableList(this.transitionTable);
+    }
+
+    /**
+     * Returns an estimate of the memory used by the table, counting each transition object and its place in the list,
+     * the hash table of positions, and the hashset entries of the valid states and inputs.
+     * @return the estimated size in bytes
+     */
+    long getFootprint() {
+        long bytes = 4 * 48 + 4L * this.index.length;
+        bytes += (24L + 4) * this.transitionTable.size();
+        bytes += (16L + 32 + 8) * (this.validStates.size() + this.validInputs.size());
+        return bytes;
     }
 
     /**
@@ -102,6 +213,7 @@ public class TransitionTable implements ITransitionTable {
         this.transitionTable = new ArrayList<>();
         this.validStates = new HashSet<>();
         this.validInputs = new HashSet<>();
+        this.index = new int[INITIAL_INDEX];
     }
 
 }
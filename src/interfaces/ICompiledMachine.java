@@ -0,0 +1,201 @@
+package interfaces;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Interface representing an immutable, compiled form of a finite state machine. States are numbered from 0 in
+ * breadth-first order from the initial state, so the initial state is always 0.
+ *
+ */
+public interface ICompiledMachine {
+
+    /**
+     * Returns the number of states in the compiled machine.
+     * @return the number of states
+     */
+    int getStateCount();
+
+    /**
+     * Returns the input alphabet of the compiled machine in ascending order.
+     * @return a copy of the input alphabet
+     */
+    char[] getAlphabet();
+
+    /**
+     * Returns the state number used by the original FSM for the given compiled state.
+     * @param state the compiled state
+     * @return the original state number, or the compiled state itself if the machine has been minimized
+     */
+    int getStateLabel(int state);
+
+    /**
+     * Returns the next state for the given compiled state and input.
+     * @param state the compiled state to use
+     * @param input the input to use
+     * @return the next compiled state, or -1 if there is no transition for the given state and input
+     */
+    int getNextState(int state, char input);
+
+    /**
+     * Returns the output for the given compiled state and input.
+     * @param state the compiled state to use
+     * @param input the input to use
+     * @return the output of the transition
+     * @throws BadInputException if there is no transition for the given state and input
+     */
+    char getOutput(int state, char input) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from its initial state over the given input sequence and returns the resulting output sequence.
+     * @param input the input sequence/word to the machine
+     * @return the output sequence/word generated for the given input sequence
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    String interpret(String input) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from state 0 over the given input sequence and returns the state reached, without
+     * producing any output.
+     * @param input the input sequence/word to the machine
+     * @return the compiled state reached
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    int getFinalState(String input) throws BadInputException;
+
+    /**
+     * Returns every character produced as output by some transition, in ascending order.
+     * @return a copy of the output alphabet
+     */
+    char[] getOutputAlphabet();
+
+    /**
+     * Runs the compiled machine from state 0 over the given input sequence, counting how many times each output
+     * character is produced without producing the output sequence.
+     * @param input the input sequence/word to the machine
+     * @return the count of each character of the output alphabet, in the order of {@link #getOutputAlphabet()}
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    int[] countOutputs(String input) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from state 0 over the given input sequence until it produces the given output
+     * character. The rest of the input is not read.
+     * @param input the input sequence/word to the machine
+     * @param output the output character to look for
+     * @return the offset of the first input character whose transition produces the output, or -1 if it is never produced
+     * @throws BadInputException if a character before the first occurrence of the output has no transition from the state reached
+     */
+    int indexOfOutput(String input, char output) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from state 0 over the given input sequence, passing each output character to the
+     * given consumer as it is produced.
+     * @param input the input sequence/word to the machine
+     * @param consumer the consumer to receive each output character with the offset of the input character which produced it
+     * @return the compiled state reached
+     * @throws BadInputException if the given input sequence contains a character that has no transition from the state reached
+     */
+    int interpret(String input, IOutputConsumer consumer) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from state 0 over each of a batch of input sequences. The batch is interpreted in
+     * sorted order so that the state and output reached at the end of a prefix shared with the previous sequence are
+     * reused rather than computed again; this is {@link BatchMode#SHARED_PREFIXES}.
+     * @param inputs the input sequences/words to the machine
+     * @param outputs filled with the output sequence/word for each input sequence in the same position, or null for
+     *                each input sequence which contains a character that has no transition from the state reached
+     * @return the number of input characters actually stepped through, which is the total length of the inputs less
+     *         the prefix characters saved
+     * @throws IllegalArgumentException if the outputs array is shorter than the inputs array
+     */
+    long interpret(String[] inputs, String[] outputs);
+
+    /**
+     * Runs the compiled machine from state 0 over each of a batch of input sequences in the given mode.
+     * @param inputs the input sequences/words to the machine
+     * @param outputs filled with the output sequence/word for each input sequence in the same position, or null for
+     *                each input sequence which contains a character that has no transition from the state reached
+     * @param mode how the batch is interpreted
+     * @return the number of input characters actually stepped through, which is the total length of the inputs less
+     *         any prefix characters saved
+     * @throws IllegalArgumentException if the outputs array is shorter than the inputs array
+     */
+    long interpret(String[] inputs, String[] outputs, BatchMode mode);
+
+    /**
+     * Runs the compiled machine from the given state over the remaining input in a buffer, writing one output character
+     * per input character, until the input is used up or the output is full. Both buffers' positions are advanced past
+     * the characters processed, so the run can be continued with the next chunk of input from the returned state.
+     * @param state the compiled state to start from
+     * @param input the buffer of input characters
+     * @param output the buffer to write output characters to
+     * @return the state reached
+     * @throws BadInputException if an input character has no transition from the state reached; the input buffer is left positioned at that character, whose offset within the buffer is recorded in the exception
+     */
+    int interpret(int state, CharBuffer input, CharBuffer output) throws BadInputException;
+
+    /**
+     * Runs the compiled machine from its initial state over the given bytes, reading each byte as a Latin-1 character
+     * and writing each output character as a byte.
+     * @param input the input bytes
+     * @return the output bytes, one per input byte
+     * @throws BadTableException if the machine has outputs which do not fit in a byte
+     * @throws BadInputException if an input byte has no transition from the state reached; the exception records its offset
+     */
+    byte[] interpret(byte[] input) throws BadTableException, BadInputException;
+
+    /**
+     * Runs the compiled machine from the given state over the remaining bytes in a buffer, reading each byte as a
+     * Latin-1 character, until the input is used up or the output is full. Both buffers' positions are advanced past
+     * the bytes processed, so the run can be continued with the next buffer of input from the returned state.
+     * @param state the compiled state to start from
+     * @param input the buffer of input bytes
+     * @param output the buffer to write output bytes to
+     * @return the state reached
+     * @throws BadTableException if the machine has outputs which do not fit in a byte
+     * @throws BadInputException if an input byte has no transition from the state reached; the input buffer is left positioned at that byte, whose offset within the buffer is recorded in the exception
+     */
+    int interpret(int state, ByteBuffer input, ByteBuffer output) throws BadTableException, BadInputException;
+
+    /**
+     * Returns the minimal equivalent machine in canonical form, so that two machines with the same behaviour
+     * minimize to equal machines regardless of how their states were originally numbered.
+     * @return the minimized machine
+     */
+    ICompiledMachine minimize();
+
+    /**
+     * Returns the number of states dropped when compiling because they are unreachable from the initial state.
+     * @return the number of states pruned
+     */
+    int getPrunedStateCount();
+
+    /**
+     * Returns the number of transitions dropped when compiling because they leave states unreachable from the initial state.
+     * @return the number of transitions pruned
+     */
+    int getPrunedTransitionCount();
+
+    /**
+     * Returns an estimate of the memory used by the compiled machine.
+     * @return the estimated size in bytes
+     */
+    long getFootprint();
+
+    /**
+     * The ways in which a batch of input sequences can be interpreted.
+     */
+    enum BatchMode {
+        /** Sort the batch, unless it is already in order, and resume each sequence from its prefix shared with the previous one. */
+        SHARED_PREFIXES,
+        /** Interpret each sequence alone, in the order given. */
+        EACH_WORD,
+        /** Share prefixes unless an estimate from a sample of the batch says that sorting and comparing would cost more than they save. */
+        ADAPTIVE
+    }
+
+}
@@ -1,6 +1,9 @@
 package interfaces;
 
+import exceptions.BadTableException;
+
 import java.io.FileNotFoundException;
+import java.util.List;
 
 /**
  * Interface for a factory abstracting over instantiation of other interface types.
@@ -35,4 +38,37 @@ public interface IFactory {
      */
     IFiniteStateMachine makeFiniteStateMachine();
 
+
+    /**
+     * Creates an instance of IMachineRegistry for sharing compiled machines between FSMs.
+     * @return the new empty MachineRegistry
+     */
+    IMachineRegistry makeMachineRegistry();
+
+
+    /**
+     * Creates an instance of INondeterministicMachine.
+     * @return the new NondeterministicMachine
+     */
+    INondeterministicMachine makeNondeterministicMachine();
+
+
+    /**
+     * Creates an instance of IRunInterpreter for interpreting run-length encoded input with the given FSM.
+     * @param fsm the FSM to interpret the input with
+     * @return the new RunInterpreter, with no input
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    IRunInterpreter makeRunInterpreter(IFiniteStateMachine fsm) throws BadTableException;
+
+
+    /**
+     * Creates an instance of IMultiScanner for running the given FSMs over the same input in a single pass.
+     * @param fsms the FSMs to run, in the order their outputs are returned
+     * @return the new MultiScanner
+     * @throws BadTableException if an FSM's transition table contains transitions to illegal states or is missing inputs
+     * @throws IllegalArgumentException if an FSM does not compile to a CompiledMachine
+     */
+    IMultiScanner makeMultiScanner(List<IFiniteStateMachine> fsms) throws BadTableException;
+
 }
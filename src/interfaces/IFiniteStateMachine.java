@@ -4,6 +4,9 @@ import exceptions.BadTableException;
 import exceptions.BadInputException;
 import exceptions.NDTransitionException;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+
 /**
  * Interface for finite state machine (FSM).
  *
@@ -26,4 +29,90 @@ public interface IFiniteStateMachine {
      */
     String interpret(String input) throws BadTableException, BadInputException;
 
+    /**
+     * This runs the finite state machine over the given input sequence like {@link #interpret(String)}, but only returns the state it finishes in, without building the output sequence.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @return the state reached after the whole input sequence, as numbered in the FSM's transitions
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    int getFinalState(String input) throws BadTableException, BadInputException;
+
+    /**
+     * This runs the finite state machine over the given input sequence like {@link #interpret(String)}, but only counts how many times each output character is produced, without building the output sequence.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @return the number of times each output character is produced, in ascending order of output; characters which are not produced are left out
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    Map<Character, Integer> getOutputHistogram(String input) throws BadTableException, BadInputException;
+
+    /**
+     * This runs the finite state machine over the given input sequence until it produces the given output character, without building the output sequence. The rest of the input sequence is not read, so bad input after the first occurrence is not reported.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @param output the output character to look for
+     * @return the offset of the first input character whose transition produces the output character, or -1 if it is never produced
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet before the first occurrence of the output
+     */
+    int indexOfOutput(String input, char output) throws BadTableException, BadInputException;
+
+    /**
+     * This runs the finite state machine over the given input sequence like {@link #interpret(String)}, but passes each output character to the given consumer as it is produced instead of building the output sequence. If bad input is found, the consumer has already received the output for every character before it.
+     * @param input the input sequence/word to the FSM as a sequence of characters in a string
+     * @param consumer the consumer to receive each output character with the offset of the input character which produced it
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     * @throws BadInputException if the given input sequence contains a character that is not an element of the input alphabet
+     */
+    void interpret(String input, IOutputConsumer consumer) throws BadTableException, BadInputException;
+
+    /**
+     * This runs the finite state machine over each of a batch of input sequences, walking each prefix shared by several input sequences only once.
+     * @param inputs the input sequences/words to the FSM
+     * @return the output sequence/word generated for each input sequence in the same order, or null for each input sequence which contains a character that is not an element of the input alphabet
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     */
+    String[] interpret(String[] inputs) throws BadTableException;
+
+    /**
+     * This runs the finite state machine over a sequence of bytes, reading each byte as a Latin-1 character and writing each output character as a byte, so ASCII and Latin-1 data need not be decoded.
+     * @param input the input sequence/word to the FSM as bytes
+     * @return the output sequence/word generated by this FSM for the given input sequence, one byte per input byte
+     * @throws BadTableException if the transition table (describing the FSM) is bad or has outputs which do not fit in a byte
+     * @throws BadInputException if the given input sequence contains a byte that is not an element of the input alphabet
+     */
+    byte[] interpret(byte[] input) throws BadTableException, BadInputException;
+
+    /**
+     * This runs the finite state machine from its initial state over the remaining bytes of the input buffer, writing one output byte per input byte to the output buffer. Direct buffers are read and written in place.
+     * @param input the buffer of input bytes, which is advanced to its limit
+     * @param output the buffer to write output bytes to, which must have at least as many bytes remaining as the input
+     * @throws BadTableException if the transition table (describing the FSM) is bad or has outputs which do not fit in a byte
+     * @throws BadInputException if the given input sequence contains a byte that is not an element of the input alphabet
+     */
+    void interpret(ByteBuffer input, ByteBuffer output) throws BadTableException, BadInputException;
+
+    /**
+     * Compiles the FSM into an immutable machine holding only the states reachable from the initial state.
+     * @return the compiled machine
+     * @throws BadTableException if the transition table (describing the FSM) contains transitions to illegal (i.e. non-existent) states or is missing one or more transitions from states for valid letters in the input alphabet.
+     */
+    ICompiledMachine compile() throws BadTableException;
+
+    /**
+     * Sets whether the FSM may be partial, i.e. have states which lack transitions for some letters of the input alphabet.
+     * A partial FSM's transition table is not rejected for missing inputs; instead, reaching a missing transition is
+     * reported as bad input. FSMs are not partial by default.
+     * @param partial true to allow missing inputs and false to reject them
+     */
+    void setPartial(boolean partial);
+
+    /**
+     * Sets whether validation is restricted to the states reachable from the initial state, so that missing inputs or
+     * transitions to illegal states in unreachable parts of the transition table are not reported. Every state is
+     * validated by default.
+     * @param reachableOnly true to validate reachable states only and false to validate every state
+     */
+    void setValidateReachableOnly(boolean reachableOnly);
+
 }
@@ -0,0 +1,53 @@
+package interfaces;
+
+import exceptions.BadTableException;
+
+/**
+ * Interface for a registry which interns compiled machines, so that all FSMs with the same behaviour share a single
+ * immutable compiled machine.
+ *
+ */
+public interface IMachineRegistry {
+
+    /**
+     * Compiles and minimizes the given FSM and returns the shared compiled machine for its canonical form. The FSM
+     * interprets with the shared machine from then on, until it is changed.
+     * @param fsm the FSM to intern
+     * @return the shared compiled machine equivalent to the given FSM
+     * @throws BadTableException if the FSM's transition table contains transitions to illegal states or is missing inputs
+     */
+    ICompiledMachine intern(IFiniteStateMachine fsm) throws BadTableException;
+
+    /**
+     * Minimizes the given compiled machine and returns the shared compiled machine for its canonical form.
+     * @param machine the compiled machine to intern
+     * @return the shared compiled machine equivalent to the given machine
+     */
+    ICompiledMachine intern(ICompiledMachine machine);
+
+    /**
+     * Returns the number of machines interned so far.
+     * @return the number of calls to intern
+     */
+    long getInternCount();
+
+    /**
+     * Returns the number of interned machines that were satisfied by an already shared machine.
+     * @return the number of interned machines that were duplicates
+     */
+    long getSharedCount();
+
+    /**
+     * Returns the number of distinct shared machines that are still in use.
+     * @return the number of live canonical machines
+     */
+    int getUniqueCount();
+
+    /**
+     * Returns an estimate of the memory saved by minimization and sharing, compared with every FSM holding its own
+     * compiled machine, less what interned FSMs keep to run on the shared machines.
+     * @return the estimated saving in bytes
+     */
+    long getBytesSaved();
+
+}
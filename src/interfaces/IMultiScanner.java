@@ -0,0 +1,40 @@
+package interfaces;
+
+/**
+ * Interface for running many finite state machines over the same input in a single pass. Each input character is
+ * read once and advances every machine still running; a machine which reaches a character without a transition is
+ * dropped without stopping the others.
+ *
+ */
+public interface IMultiScanner {
+
+    /**
+     * Runs every machine from its initial state over the input.
+     * @param input the input sequence/word
+     * @return the output sequence/word of each machine, in the order the machines were given, or null for each machine which reached a character that has no transition
+     */
+    String[] interpret(String input);
+
+    /**
+     * Runs every machine from its initial state over the input, recording where each rejected machine failed.
+     * @param input the input sequence/word
+     * @param offsets filled with the offset of the first character without a transition for each machine, in the order the machines were given, or -1 for each machine which accepted the input
+     * @return the output sequence/word of each machine, in the order the machines were given, or null for each machine which reached a character that has no transition
+     * @throws IllegalArgumentException if the offsets array is shorter than the number of machines
+     */
+    String[] interpret(String input, long[] offsets);
+
+    /**
+     * Returns the number of machines given to the scanner.
+     * @return the number of machines
+     */
+    int getMachineCount();
+
+    /**
+     * Returns the number of machines actually run, which is less than the number given when several machines are
+     * equal after minimization.
+     * @return the number of distinct machines
+     */
+    int getDistinctCount();
+
+}
@@ -0,0 +1,48 @@
+package interfaces;
+
+import exceptions.BadInputException;
+import exceptions.NDTransitionException;
+
+import java.util.Set;
+
+/**
+ * Interface for a nondeterministic finite state machine, in which a state may have several transitions for the same input.
+ *
+ */
+public interface INondeterministicMachine {
+
+    /**
+     * Adds the given transition to the machine. The current_state of the first transition added is treated as the initial state.
+     * Unlike {@link IFiniteStateMachine#addTransition(ITransition)}, several transitions may share a current_state and input pair.
+     * @param transition the transition to add
+     * @throws NDTransitionException when the transition is null
+     */
+    void addTransition(ITransition transition) throws NDTransitionException;
+
+    /**
+     * Runs the machine over the given input sequence and returns the original numbers of the states it may be in afterwards.
+     * @param input the input sequence/word to the machine
+     * @return the possible final states in ascending order
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    int[] getFinalStates(String input) throws BadInputException;
+
+    /**
+     * Returns the output of the chosen path for the given input sequence. Of all paths which consume the whole input,
+     * the chosen path is the one which, at every step, takes the earliest added transition that can still complete.
+     * @param input the input sequence/word to the machine
+     * @return the output sequence/word of the chosen path
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    String interpret(String input) throws BadInputException;
+
+    /**
+     * Returns the outputs of every path which consumes the whole input sequence. The number of distinct outputs may
+     * grow exponentially with the length of the input.
+     * @param input the input sequence/word to the machine
+     * @return the set of possible output sequences/words
+     * @throws BadInputException if no path through the machine consumes the whole input sequence
+     */
+    Set<String> interpretAll(String input) throws BadInputException;
+
+}
@@ -0,0 +1,18 @@
+package interfaces;
+
+/**
+ * Interface for a callback receiving each output character of a finite state machine as it is produced, so that
+ * output can be reduced without being collected into a word.
+ *
+ */
+@FunctionalInterface
+public interface IOutputConsumer {
+
+    /**
+     * Receives one output character.
+     * @param offset the offset of the input character which produced the output
+     * @param output the output character
+     */
+    void accept(int offset, char output);
+
+}
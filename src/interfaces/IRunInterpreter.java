@@ -0,0 +1,62 @@
+package interfaces;
+
+import exceptions.BadInputException;
+
+/**
+ * Interface for interpreting run-length encoded input with a finite state machine. Input is added as runs, each a
+ * block of characters repeated a number of times, and the state reached is found without stepping through every
+ * repetition. Output is kept in compressed form, as the runs themselves, and only expanded when it is requested.
+ *
+ */
+public interface IRunInterpreter {
+
+    /**
+     * Adds a run of a single repeated character to the input.
+     * @param symbol the input character
+     * @param repeat the number of times the character is repeated, which may be zero
+     * @throws BadInputException if the run reaches a character that has no transition; the run is not added, and the offset in the exception is counted from the start of all the input
+     */
+    void addRun(char symbol, long repeat) throws BadInputException;
+
+    /**
+     * Adds a run of a repeated block of characters to the input.
+     * @param block the block of input characters
+     * @param repeat the number of times the block is repeated, which may be zero
+     * @throws BadInputException if the run reaches a character that has no transition; the run is not added, and the offset in the exception is counted from the start of all the input
+     */
+    void addRun(String block, long repeat) throws BadInputException;
+
+    /**
+     * Returns the state reached after all the input added so far.
+     * @return the state reached, as numbered in the FSM's transitions
+     */
+    int getState();
+
+    /**
+     * Returns the number of input characters added so far, which is also the length of the output.
+     * @return the length of the input
+     */
+    long getLength();
+
+    /**
+     * Expands part of the output.
+     * @param offset the offset of the first output character to expand
+     * @param length the number of output characters to expand
+     * @return the output characters
+     * @throws IndexOutOfBoundsException if the part lies outside the output
+     */
+    String getOutput(long offset, int length);
+
+    /**
+     * Expands all of the output.
+     * @return the output sequence/word
+     * @throws IllegalStateException if the output is too long to hold in a string
+     */
+    String getOutput();
+
+    /**
+     * Removes all the input, returning to the initial state. Precomputed repetition tables are kept for later runs.
+     */
+    void reset();
+
+}
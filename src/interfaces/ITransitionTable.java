@@ -3,6 +3,9 @@ package interfaces;
 import exceptions.BadInputException;
 import exceptions.NDTransitionException;
 
+import java.util.List;
+import java.util.function.IntPredicate;
+
 /**
  * Interface representing a transition table for an FSM.
  *
@@ -38,4 +41,24 @@ public interface ITransitionTable {
      */
     boolean hasMissingInputs();
 
+    /**
+     * Check whether the transitions from the given states lead to illegal (non-existent) states.
+     * @param states the current states whose transitions are checked
+     * @return true if a transition from one of the given states leads to an illegal (non-existent) state and false otherwise
+     */
+    boolean hasTransitionsToIllegalStates(IntPredicate states);
+
+    /**
+     * Checks whether any of the given states is missing a transition for an input used by the given states.
+     * @param states the current states which are checked
+     * @return true if one of the given states is missing a transition for an input used by the given states and false otherwise.
+     */
+    boolean hasMissingInputs(IntPredicate states);
+
+    /**
+     * Returns every transition in the table, in the order in which they were added.
+     * @return a read-only view of the transitions in the table
+     */
+    List<ITransition> getTransitions();
+
 }
@@ -0,0 +1,149 @@
+package test;
+
+import bench.DifferentialHarness;
+import bench.RandomMachineGenerator;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for the random machine generator and the differential harness.
+ */
+public class TestDifferential {
+
+
+    private RandomMachineGenerator generator;
+
+
+    /**
+     * JUnit setup method to run before every other test.
+     */
+    @BeforeEach
+    public void setup() {
+        generator = new RandomMachineGenerator(7);
+    }
+
+    /**
+     * Runs random words through every engine of random machines of the given shape, one at a time and as a batch,
+     * failing on the first disagreement.
+     * @param states the number of states
+     * @param alphabet the number of input characters
+     * @param first the first character of the alphabet
+     * @param density the chance that each state has a transition for each input
+     * @return the number of words rejected by the engines
+     * @throws BadTableException should not be thrown
+     * @throws NDTransitionException should not be thrown
+     */
+    private int checkAgreement(int states, int alphabet, char first, double density) throws BadTableException, NDTransitionException {
+        int rejected = 0;
+        for (int machine = 0; machine < 5; machine++) {
+            List<ITransition> transitions = generator.generate(states, alphabet, first, density);
+            DifferentialHarness harness = new DifferentialHarness(transitions, density < 1);
+            String[] batch = new String[40];
+            for (int word = 0; word < batch.length; word++) {
+                String input = generator.walk(transitions, word * 3, 0.02);
+                batch[word] = input;
+                Map<String, String> outcomes = harness.run(input);
+                assertTrue(DifferentialHarness.agree(outcomes), input + " " + outcomes);
+                if (outcomes.get("fsm").startsWith("BadInputException")) {
+                    rejected++;
+                }
+            }
+            assertTrue(harness.batchAgrees(batch));
+        }
+        return rejected;
+    }
+
+    /**
+     * Checks that a complete machine has a transition for every state and input, and compiles without being partial.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void completeMachineShape() throws BadTableException, NDTransitionException {
+        List<ITransition> transitions = generator.generate(12, 5, 'a', 1.0);
+        assertEquals(60, transitions.size());
+        IFiniteStateMachine fsm = Factory.getInstance().makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        assertEquals(transitions.get(0).getCurrentState(), fsm.compile().getStateLabel(0));
+    }
+
+    /**
+     * Checks that a sparse machine is missing inputs, so it is only accepted as a partial FSM.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void incompleteMachineNeedsPartial() throws NDTransitionException {
+        List<ITransition> transitions = generator.generate(12, 5, 'a', 0.3);
+        assertTrue(transitions.size() < 60);
+        IFiniteStateMachine fsm = Factory.getInstance().makeFiniteStateMachine();
+        for (ITransition transition : transitions) {
+            fsm.addTransition(transition);
+        }
+        assertThrows(BadTableException.class, () -> fsm.compile());
+    }
+
+    /**
+     * Checks that generation is repeatable for the same seed.
+     */
+    @Test
+    public void generationIsRepeatable() {
+        List<ITransition> first = new RandomMachineGenerator(3).generate(8, 4, 'a', 0.5);
+        List<ITransition> second = new RandomMachineGenerator(3).generate(8, 4, 'a', 0.5);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getCurrentState(), second.get(i).getCurrentState());
+            assertEquals(first.get(i).getInput(), second.get(i).getInput());
+            assertEquals(first.get(i).getOutput(), second.get(i).getOutput());
+            assertEquals(first.get(i).getNextState(), second.get(i).getNextState());
+        }
+    }
+
+    /**
+     * Checks that every engine agrees on complete machines, which accept every word.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void enginesAgreeOnCompleteMachines() throws BadTableException, NDTransitionException {
+        assertEquals(0, checkAgreement(20, 6, 'a', 1.0));
+    }
+
+    /**
+     * Checks that every engine agrees on incomplete machines, including where each word is rejected.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void enginesAgreeOnIncompleteMachines() throws BadTableException, NDTransitionException {
+        assertTrue(checkAgreement(20, 6, 'a', 0.4) > 0);
+    }
+
+    /**
+     * Checks that every engine agrees on machines whose alphabet does not fit in a byte, which leave out the byte modes.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void enginesAgreeOnWideAlphabet() throws BadTableException, NDTransitionException {
+        checkAgreement(10, 40, '\u03b1', 0.7);
+        DifferentialHarness harness = new DifferentialHarness(generator.generate(4, 3, '\u03b1', 1.0), false);
+        assertFalse(harness.getEngines().contains("bytes"));
+        assertTrue(harness.getEngines().contains("processor"));
+    }
+
+}
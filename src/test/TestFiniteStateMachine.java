@@ -10,7 +10,14 @@ import interfaces.ITransition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -152,5 +159,131 @@ public class TestFiniteStateMachine {
         assertThrows(BadInputException.class, () -> fsm.interpret("abc"));
     }
 
+    /**
+     * Checks whether the byte interpret mode gives the same output as the String interpret mode.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void byteInterpretMatchesString() throws BadTableException, BadInputException, NDTransitionException {
+        fsm.addTransition(factory.makeTransition(7, '1', '1', 5));
+        fsm.addTransition(factory.makeTransition(7, '2', '0', 7));
+        fsm.addTransition(factory.makeTransition(5, '1', '2', 6));
+        fsm.addTransition(factory.makeTransition(5, '2', '0', 6));
+        fsm.addTransition(factory.makeTransition(6, '1', '3', 7));
+        fsm.addTransition(factory.makeTransition(6, '2', '\u00e9', 6));
+        String input = "1112211222";
+        byte[] expected = fsm.interpret(input).getBytes(StandardCharsets.ISO_8859_1);
+        assertArrayEquals(expected, fsm.interpret(input.getBytes(StandardCharsets.ISO_8859_1)));
+        ByteBuffer in = ByteBuffer.allocateDirect(input.length()).put(input.getBytes(StandardCharsets.ISO_8859_1)).flip();
+        ByteBuffer out = ByteBuffer.allocateDirect(input.length());
+        fsm.interpret(in, out);
+        byte[] written = new byte[input.length()];
+        out.flip().get(written);
+        assertArrayEquals(expected, written);
+        assertEquals(0, in.remaining());
+    }
+
+    /**
+     * Checks whether the byte interpret mode reports the offset of a byte outside the input alphabet.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void byteInterpretBadInput() throws NDTransitionException {
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'o', 1));
+        assertEquals(2, assertThrows(BadInputException.class, () -> fsm.interpret(new byte[] {'a', 'b', (byte) 0xE1})).getOffset());
+    }
+
+    /**
+     * Checks whether the byte interpret mode rejects a machine with outputs which do not fit in a byte.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void byteInterpretWideOutput() throws NDTransitionException {
+        fsm.addTransition(factory.makeTransition(1, 'a', '\u20ac', 1));
+        assertThrows(BadTableException.class, () -> fsm.interpret(new byte[] {'a'}));
+    }
+
+    /**
+     * Checks whether the output reduction modes agree with the output of the String interpret mode.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void reductionModesMatchInterpret() throws BadTableException, BadInputException, NDTransitionException {
+        fsm.addTransition(factory.makeTransition(7, '1', '1', 5));
+        fsm.addTransition(factory.makeTransition(7, '2', '0', 7));
+        fsm.addTransition(factory.makeTransition(5, '1', '2', 6));
+        fsm.addTransition(factory.makeTransition(5, '2', '0', 6));
+        fsm.addTransition(factory.makeTransition(6, '1', '3', 7));
+        fsm.addTransition(factory.makeTransition(6, '2', '0', 6));
+        String input = "1112211222";
+        String output = fsm.interpret(input);
+        assertEquals(6, fsm.getFinalState(input));
+        assertEquals(7, fsm.getFinalState(""));
+        assertEquals(Map.of('0', 5, '1', 2, '2', 2, '3', 1), fsm.getOutputHistogram(input));
+        assertEquals(output.indexOf('3'), fsm.indexOfOutput(input, '3'));
+        assertEquals(-1, fsm.indexOfOutput(input, 'x'));
+        StringBuilder collected = new StringBuilder();
+        fsm.interpret(input, (offset, out) -> {
+            assertEquals(collected.length(), offset);
+            collected.append(out);
+        });
+        assertEquals(output, collected.toString());
+    }
+
+    /**
+     * Checks whether the output reduction modes report bad input, except after the output looked for is found.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void reductionModesBadInput() throws BadTableException, BadInputException, NDTransitionException {
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'o', 1));
+        assertEquals(2, assertThrows(BadInputException.class, () -> fsm.getFinalState("abc")).getOffset());
+        assertEquals(2, assertThrows(BadInputException.class, () -> fsm.getOutputHistogram("abc")).getOffset());
+        assertEquals(2, assertThrows(BadInputException.class, () -> fsm.indexOfOutput("abcb", 'x')).getOffset());
+        assertEquals(2, assertThrows(BadInputException.class, () -> fsm.indexOfOutput("aacb", 'o')).getOffset());
+        assertEquals(1, fsm.indexOfOutput("abc", 'o'));
+        StringBuilder collected = new StringBuilder();
+        assertThrows(BadInputException.class, () -> fsm.interpret("abc", (offset, out) -> collected.append(out)));
+        assertEquals("eo", collected.toString());
+    }
+
+    /**
+     * Checks whether batch interpretation returns the same outputs as interpreting each word alone, in the original
+     * order, with null for words containing bad input, including words sharing a prefix with a bad word, both for a
+     * shuffled batch and for one already in order.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void batchInterpretMatchesSingle() throws BadTableException, BadInputException, NDTransitionException {
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'e', 1));
+        String[] shuffled = {"abba", "abbab", "", "abxa", "ab", "abbab", "abx", "abxb", "ba", "abbb"};
+        String[] sorted = shuffled.clone();
+        Arrays.sort(sorted);
+        for (String[] inputs : new String[][] {shuffled, sorted}) {
+            String[] outputs = fsm.interpret(inputs);
+            assertEquals(inputs.length, outputs.length);
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i].indexOf('x') >= 0) {
+                    assertNull(outputs[i]);
+                } else {
+                    assertEquals(fsm.interpret(inputs[i]), outputs[i]);
+                }
+            }
+        }
+    }
+
 
 }
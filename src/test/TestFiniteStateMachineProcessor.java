@@ -0,0 +1,296 @@
+package test;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import impl.FiniteStateMachineProcessor;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for the FSM reactive stream processor.
+ */
+public class TestFiniteStateMachineProcessor {
+
+
+    private static final int BUFFER_SIZE = 64;
+
+    private IFiniteStateMachine fsm;
+
+
+    /**
+     * JUnit setup method to run before every other test.
+     * @throws NDTransitionException should not be thrown
+     */
+    @BeforeEach
+    public void setup() throws NDTransitionException {
+        IFactory factory = Factory.getInstance();
+        fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'o', 2));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'e', 1));
+    }
+
+    /**
+     * Subscriber which collects output, requesting a fixed number of buffers at a time and optionally pausing on each.
+     */
+    private static final class Collector implements Flow.Subscriber<CharBuffer> {
+
+        private final FiniteStateMachineProcessor processor;
+        private final long batch;
+        private final long pauseNanos;
+        private final StringBuilder output = new StringBuilder();
+        private final CompletableFuture<Throwable> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private long outstanding;
+        private int buffers;
+        private boolean overrun;
+
+        Collector(FiniteStateMachineProcessor processor, long batch, long pauseNanos) {
+            this.processor = processor;
+            this.batch = batch;
+            this.pauseNanos = pauseNanos;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            this.outstanding = batch;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(CharBuffer buffer) {
+            overrun |= outstanding <= 0;
+            output.append(buffer);
+            buffers++;
+            processor.release(buffer);
+            if (pauseNanos > 0) {
+                long end = System.nanoTime() + pauseNanos;
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+            }
+            if (--outstanding == 0 && batch != Long.MAX_VALUE) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+
+    /**
+     * Subscription which only counts the chunks requested, so that a test can feed chunks by hand.
+     */
+    private static final class CountingSubscription implements Flow.Subscription {
+
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Builds random input over the FSM's alphabet.
+     * @param length the number of characters
+     * @return the input
+     */
+    private static String randomInput(int length) {
+        Random random = new Random(length);
+        char[] input = new char[length];
+        for (int i = 0; i < length; i++) {
+            input[i] = random.nextBoolean() ? 'a' : 'b';
+        }
+        return new String(input);
+    }
+
+    /**
+     * Publishes the given input in chunks of varying size through a SubmissionPublisher and waits for the subscriber to finish.
+     * @param input the input to publish
+     * @param subscriber the subscriber to the processor's output
+     * @param processor the processor under test
+     * @throws Exception should not be thrown
+     */
+    private static void publish(String input, Collector subscriber, FiniteStateMachineProcessor processor) throws Exception {
+        try (SubmissionPublisher<CharBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            processor.subscribe(subscriber);
+            Random random = new Random(1);
+            char[] chars = input.toCharArray();
+            for (int i = 0; i < input.length();) {
+                int end = Math.min(input.length(), i + 1 + random.nextInt(4 * BUFFER_SIZE));
+                publisher.submit(CharBuffer.wrap(chars, i, end - i).slice());
+                i = end;
+            }
+        }
+        assertNull(subscriber.done.get(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Checks that a subscriber requesting everything receives the same output as interpret.
+     * @throws Exception should not be thrown during this test
+     */
+    @Test
+    public void fastSubscriberMatchesInterpret() throws Exception {
+        String input = randomInput(4_000_000);
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, 8192);
+        Collector subscriber = new Collector(processor, Long.MAX_VALUE, 0);
+        publish(input, subscriber, processor);
+        assertEquals(fsm.interpret(input), subscriber.output.toString());
+    }
+
+    /**
+     * Checks that a subscriber requesting one buffer at a time and pausing on each receives the same output as
+     * interpret, and is never handed a buffer it has not requested.
+     * @throws Exception should not be thrown during this test
+     */
+    @Test
+    public void slowSubscriberNeverExceedsDemand() throws Exception {
+        String input = randomInput(200_000);
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, BUFFER_SIZE);
+        Collector subscriber = new Collector(processor, 1, 20_000);
+        publish(input, subscriber, processor);
+        assertEquals(fsm.interpret(input), subscriber.output.toString());
+        assertTrue(subscriber.buffers >= input.length() / BUFFER_SIZE);
+        assertFalse(subscriber.overrun, "a buffer was delivered without demand");
+    }
+
+    /**
+     * Checks that output state is carried across chunks which split the input at arbitrary points.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     */
+    @Test
+    public void stateCarriedAcrossChunks() throws BadTableException, BadInputException {
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, 3);
+        Collector subscriber = new Collector(processor, Long.MAX_VALUE, 0);
+        CountingSubscription upstream = new CountingSubscription();
+        processor.onSubscribe(upstream);
+        processor.subscribe(subscriber);
+        List<String> chunks = List.of("a", "b", "", "aab", "ba");
+        for (String chunk : chunks) {
+            processor.onNext(CharBuffer.wrap(chunk));
+        }
+        processor.onComplete();
+        assertEquals(fsm.interpret(String.join("", chunks)), subscriber.output.toString());
+        assertTrue(subscriber.done.isDone());
+    }
+
+    /**
+     * Checks that output from a chunk too small to fill a buffer is delivered while the subscriber has demand, without
+     * waiting for more input or completion, and is held back while it has none.
+     * @throws BadTableException should not be thrown during this test
+     */
+    @Test
+    public void partialBufferDeliveredOnDemand() throws BadTableException {
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, BUFFER_SIZE);
+        Collector subscriber = new Collector(processor, 1, 0);
+        CountingSubscription upstream = new CountingSubscription();
+        processor.onSubscribe(upstream);
+        processor.subscribe(subscriber);
+        processor.onNext(CharBuffer.wrap("ab"));
+        assertEquals("eo", subscriber.output.toString());
+        assertEquals(1, subscriber.buffers);
+        processor.onNext(CharBuffer.wrap("b"));
+        assertEquals("eoe", subscriber.output.toString());
+        assertFalse(subscriber.done.isDone());
+    }
+
+    /**
+     * Checks that input is only requested once the subscriber has demand and every filled buffer has been delivered.
+     * @throws BadTableException should not be thrown during this test
+     */
+    @Test
+    public void inputRequestedOnlyWithDemand() throws BadTableException {
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, BUFFER_SIZE);
+        CountingSubscription upstream = new CountingSubscription();
+        processor.onSubscribe(upstream);
+        assertEquals(0, upstream.requested);
+        Collector subscriber = new Collector(processor, 1, 0);
+        List<Flow.Subscription> subscriptions = new ArrayList<>();
+        processor.subscribe(new Flow.Subscriber<CharBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriptions.add(subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(CharBuffer item) {
+                subscriber.buffers++;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertEquals(1, upstream.requested);
+        processor.onNext(CharBuffer.wrap(randomInput(3 * BUFFER_SIZE)));
+        assertEquals(1, subscriber.buffers);
+        assertEquals(1, upstream.requested);
+        subscriptions.get(0).request(5);
+        assertEquals(3, subscriber.buffers);
+        assertEquals(2, upstream.requested);
+    }
+
+    /**
+     * Checks that input with no transition is signalled by onError with its offset in the stream, after the output
+     * for the preceding input, and that the publisher is cancelled.
+     * @throws BadTableException should not be thrown during this test
+     */
+    @Test
+    public void badInputSignalsOffset() throws BadTableException {
+        FiniteStateMachineProcessor processor = new FiniteStateMachineProcessor(fsm, BUFFER_SIZE);
+        Collector subscriber = new Collector(processor, Long.MAX_VALUE, 0);
+        CountingSubscription upstream = new CountingSubscription();
+        processor.onSubscribe(upstream);
+        processor.subscribe(subscriber);
+        processor.onNext(CharBuffer.wrap("ab"));
+        processor.onNext(CharBuffer.wrap("aca"));
+        Throwable error = subscriber.done.getNow(null);
+        assertTrue(error instanceof BadInputException);
+        assertEquals(3, ((BadInputException) error).getOffset());
+        assertEquals("eoo", subscriber.output.toString());
+        assertTrue(upstream.cancelled);
+    }
+
+}
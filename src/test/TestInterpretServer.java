@@ -0,0 +1,274 @@
+package test;
+
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import impl.InterpretClient;
+import impl.InterpretServer;
+import impl.MachineFile;
+import interfaces.ICompiledMachine;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for serving interpret requests over local sockets and for reading .fsm files.
+ */
+public class TestInterpretServer {
+
+
+    private static final String PARITY = String.join("\n",
+            "# parity of 'a's, with spaces passed through",
+            "partial",
+            "0 a 1 1",
+            "1 a 0 0",
+            "0 \\u0020 _ 0",
+            "",
+            "1 \\u0020 _ 1",
+            "0 b b 0");
+
+    private ICompiledMachine parity;
+    private InterpretServer server;
+    private Thread thread;
+
+
+    /**
+     * JUnit setup method to run before every other test. Starts a server on a free loopback port serving a parity
+     * machine read from the .fsm format.
+     * @throws IOException should not be thrown
+     * @throws NDTransitionException should not be thrown
+     * @throws BadTableException should not be thrown
+     */
+    @BeforeEach
+    public void setup() throws IOException, NDTransitionException, BadTableException {
+        parity = MachineFile.read(new StringReader(PARITY)).compile();
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Starts a server serving the parity machine, and a machine which throws from every method, on its own thread.
+     * @param address the address to bind to
+     * @throws IOException should not be thrown
+     */
+    private void start(SocketAddress address) throws IOException {
+        ICompiledMachine broken = (ICompiledMachine) Proxy.newProxyInstance(ICompiledMachine.class.getClassLoader(),
+                new Class<?>[] {ICompiledMachine.class}, (proxy, method, args) -> {
+                    throw new IllegalStateException("broken machine");
+                });
+        server = new InterpretServer(Map.of("parity", parity, "broken", broken), address);
+        thread = new Thread(server);
+        thread.start();
+    }
+
+    /**
+     * JUnit teardown method which stops the server.
+     * @throws Exception should not be thrown
+     */
+    @AfterEach
+    public void teardown() throws Exception {
+        server.close();
+        thread.join(5000);
+    }
+
+    /**
+     * Checks that the .fsm format is read with its comments, directives and escapes, and that malformed lines are
+     * reported with their line numbers.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void machineFileFormat() throws Exception {
+        assertEquals("10_b1_0", parity.interpret("aa ba a"));
+        IOException fields = assertThrows(IOException.class, () -> MachineFile.read(new StringReader("0 a a 0\n0 b b\n")));
+        assertTrue(fields.getMessage().startsWith("line 2"), fields.getMessage());
+        IOException escape = assertThrows(IOException.class, () -> MachineFile.read(new StringReader("0 \\uZZZZ a 0")));
+        assertTrue(escape.getMessage().startsWith("line 1"), escape.getMessage());
+        assertThrows(IOException.class, () -> MachineFile.read(new StringReader("x a a 0")));
+        assertThrows(NDTransitionException.class, () -> MachineFile.read(new StringReader("0 a a 0\n0 a b 0")));
+        IFiniteStateMachine complete = MachineFile.read(new StringReader("0 a b 1\n1 a b 2\n"));
+        assertThrows(BadTableException.class, complete::compile);
+    }
+
+    /**
+     * Checks that a machine written in the .fsm format, with characters which must be escaped and an unreachable
+     * transition to an illegal state, reads back as the same machine with the same modes.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void machineFileRoundTrip() throws Exception {
+        IFactory factory = Factory.getInstance();
+        List<ITransition> transitions = List.of(factory.makeTransition(3, ' ', '#', 4),
+                factory.makeTransition(4, '\u00e9', '\\', 3), factory.makeTransition(4, '\n', '\u0000', 4),
+                factory.makeTransition(3, 'a', '\ud83d', 3), factory.makeTransition(9, 'a', 'a', 99));
+        StringWriter text = new StringWriter();
+        MachineFile.write(transitions, true, true, text);
+        assertEquals(7, text.toString().lines().count());
+        IFiniteStateMachine read = MachineFile.read(new StringReader(text.toString()));
+        IFiniteStateMachine expected = factory.makeFiniteStateMachine();
+        expected.setPartial(true);
+        expected.setValidateReachableOnly(true);
+        for (ITransition transition : transitions) {
+            expected.addTransition(transition);
+        }
+        assertEquals(expected.compile(), read.compile());
+        assertEquals("#\u0000\\\ud83d", read.interpret(" \n\u00e9a"));
+    }
+
+    /**
+     * Checks single and batched requests, including rejected words with the offsets of their bad input.
+     * @throws IOException should not be thrown
+     */
+    @Test
+    public void singleAndBatchRequests() throws IOException {
+        try (InterpretClient client = new InterpretClient(server.getAddress())) {
+            InterpretClient.Response single = client.interpret("parity", "aab");
+            assertEquals(InterpretServer.OK, single.getStatus());
+            assertArrayEquals(new String[] {"10b"}, single.getOutputs());
+            InterpretClient.Response rejected = client.interpret("parity", "aaxa");
+            assertNull(rejected.getOutputs()[0]);
+            assertEquals(2, rejected.getOffset(0));
+            InterpretClient.Response batch = client.interpret("parity", "a a", "", "b", "aac", "a a", "ab\u00e9");
+            assertArrayEquals(new String[] {"1_0", "", "b", null, "1_0", null}, batch.getOutputs());
+            assertEquals(-1, batch.getOffset(0));
+            assertEquals(2, batch.getOffset(3));
+            assertEquals(1, batch.getOffset(5));
+        }
+    }
+
+    /**
+     * Checks that requests for an unknown machine fail without closing the connection.
+     * @throws IOException should not be thrown
+     */
+    @Test
+    public void unknownMachine() throws IOException {
+        try (InterpretClient client = new InterpretClient(server.getAddress())) {
+            InterpretClient.Response unknown = client.interpret("nope", "a");
+            assertEquals(InterpretServer.UNKNOWN_MACHINE, unknown.getStatus());
+            assertNull(unknown.getOutputs());
+            assertTrue(unknown.getMessage().contains("nope"), unknown.getMessage());
+            assertEquals(InterpretServer.OK, client.interpret("parity", "a").getStatus());
+        }
+    }
+
+    /**
+     * Checks that a client which pipelines more responses than the socket can buffer and then closes its sending side,
+     * before reading any, still receives every response.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void responsesDrainedAfterClientShutsDownOutput() throws Exception {
+        try (InterpretClient client = new InterpretClient(server.getAddress())) {
+            String large = "ba a ".repeat(20_000);
+            for (int id = 0; id < 10; id++) {
+                client.send(id, "parity", large);
+            }
+            client.shutdownOutput();
+            Thread.sleep(200);
+            String expected = parity.interpret(large);
+            for (int id = 0; id < 10; id++) {
+                InterpretClient.Response response = client.receive();
+                assertEquals(id, response.getId());
+                assertEquals(expected, response.getOutputs()[0]);
+            }
+            assertThrows(IOException.class, client::receive);
+        }
+    }
+
+    /**
+     * Checks that a request which makes serving it throw closes only its own connection, and that the server goes on
+     * serving other connections.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void failingRequestDropsOnlyItsConnection() throws Exception {
+        try (InterpretClient failing = new InterpretClient(server.getAddress());
+             InterpretClient other = new InterpretClient(server.getAddress())) {
+            assertThrows(IOException.class, () -> failing.interpret("broken", "a"));
+            assertEquals("101", other.interpret("parity", "aaa").getOutputs()[0]);
+        }
+        try (InterpretClient client = new InterpretClient(server.getAddress())) {
+            assertEquals("b", client.interpret("parity", "b").getOutputs()[0]);
+        }
+        assertTrue(thread.isAlive(), "server thread should survive");
+    }
+
+    /**
+     * Checks that pipelined requests, some large enough to span several reads and writes, are answered in order.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void pipelinedRequestsInOrder() throws Exception {
+        try (InterpretClient client = new InterpretClient(server.getAddress())) {
+            String large = "ba a ".repeat(20_000);
+            String expected = parity.interpret(large);
+            for (int id = 0; id < 100; id++) {
+                if (id % 10 == 0) {
+                    client.send(id, "parity", large, "a".repeat(id));
+                } else {
+                    client.send(id, id % 7 == 0 ? "nope" : "parity", "a".repeat(id));
+                }
+            }
+            client.flush();
+            for (int id = 0; id < 100; id++) {
+                InterpretClient.Response response = client.receive();
+                assertEquals(id, response.getId());
+                if (id % 10 == 0) {
+                    assertEquals(expected, response.getOutputs()[0]);
+                    assertEquals(parity.interpret("a".repeat(id)), response.getOutputs()[1]);
+                } else if (id % 7 == 0) {
+                    assertEquals(InterpretServer.UNKNOWN_MACHINE, response.getStatus());
+                } else {
+                    assertEquals(parity.interpret("a".repeat(id)), response.getOutputs()[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that several clients are served at once over a Unix-domain socket, and that the socket file is removed
+     * when the server is closed.
+     * @throws Exception should not be thrown
+     */
+    @Test
+    public void unixDomainSocket() throws Exception {
+        teardown();
+        Path directory = Files.createTempDirectory("fsm");
+        Path socket = directory.resolve("server.sock");
+        start(UnixDomainSocketAddress.of(socket));
+        try (InterpretClient first = new InterpretClient(server.getAddress());
+             InterpretClient second = new InterpretClient(server.getAddress())) {
+            first.send(1, "parity", "aaa");
+            second.send(2, "parity", "b");
+            second.flush();
+            first.flush();
+            assertEquals("101", first.receive().getOutputs()[0]);
+            assertEquals("b", second.receive().getOutputs()[0]);
+        }
+        teardown();
+        assertTrue(Files.notExists(socket), "socket file should be removed");
+        Files.delete(directory);
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+}
@@ -0,0 +1,346 @@
+package test;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.CompiledMachine;
+import impl.Factory;
+import impl.FiniteStateMachine;
+import interfaces.ICompiledMachine;
+import interfaces.ICompiledMachine.BatchMode;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMachineRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for compiled machines and the machine registry.
+ */
+public class TestMachineRegistry {
+
+
+    private IFactory factory;
+    private IMachineRegistry registry;
+
+
+    /**
+     * JUnit setup method to run before every other test.
+     */
+    @BeforeEach
+    public void setup() {
+        factory = Factory.getInstance();
+        registry = factory.makeMachineRegistry();
+    }
+
+    /**
+     * Builds a two state machine which alternates output on 'b', numbering its states with the given values.
+     * @param first the number of the initial state
+     * @param second the number of the other state
+     * @return the FSM
+     * @throws NDTransitionException should not be thrown
+     */
+    private IFiniteStateMachine twoStateMachine(int first, int second) throws NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(first, 'a', 'e', first));
+        fsm.addTransition(factory.makeTransition(first, 'b', 'o', second));
+        fsm.addTransition(factory.makeTransition(second, 'a', 'o', second));
+        fsm.addTransition(factory.makeTransition(second, 'b', 'e', first));
+        return fsm;
+    }
+
+    /**
+     * This checks that the factory was able to call a sensible constructor to get a non-null instance of IMachineRegistry.
+     */
+    @Test
+    public void registryCreationNonNull() {
+        assertNotNull(registry);
+    }
+
+    /**
+     * Checks that a compiled machine gives the same output as the FSM it was compiled from and keeps the original state numbers.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void compiledMachineMatchesFSM() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine fsm = twoStateMachine(7, 3);
+        ICompiledMachine machine = fsm.compile();
+        assertEquals(fsm.interpret("abbab"), machine.interpret("abbab"));
+        assertEquals(7, machine.getStateLabel(0));
+        assertEquals(3, machine.getStateLabel(machine.getNextState(0, 'b')));
+        assertEquals(-1, machine.getNextState(0, 'c'));
+        assertThrows(BadInputException.class, () -> machine.interpret("abc"));
+    }
+
+    /**
+     * Checks that unreachable states are not compiled.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void compileDropsUnreachableStates() throws BadTableException, NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'x', 1));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'y', 1));
+        assertEquals(1, fsm.compile().getStateCount());
+    }
+
+    /**
+     * Checks that equivalent states are merged by minimization.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void minimizeMergesEquivalentStates() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'x', 2));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'x', 3));
+        fsm.addTransition(factory.makeTransition(3, 'a', 'x', 1));
+        ICompiledMachine minimized = fsm.compile().minimize();
+        assertEquals(1, minimized.getStateCount());
+        assertEquals("xxxx", minimized.interpret("aaaa"));
+    }
+
+    /**
+     * Checks that machines which differ only by state numbering share one compiled machine.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void renumberedMachinesAreShared() throws BadTableException, NDTransitionException {
+        ICompiledMachine first = registry.intern(twoStateMachine(1, 2));
+        ICompiledMachine second = registry.intern(twoStateMachine(40, 9));
+        assertSame(first, second);
+        assertSame(first, registry.intern(twoStateMachine(7, 8)));
+        assertEquals(3, registry.getInternCount());
+        assertEquals(2, registry.getSharedCount());
+        assertEquals(1, registry.getUniqueCount());
+        assertTrue(registry.getBytesSaved() > 0);
+    }
+
+    /**
+     * Checks that an interned FSM runs on the shared machine, with its own state numbers even where the shared machine
+     * merged its states, until it is changed, and that what it keeps is counted against the saving.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void internedFSMRunsOnSharedMachine() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine first = twoStateMachine(1, 2);
+        IFiniteStateMachine second = twoStateMachine(40, 9);
+        ICompiledMachine shared = registry.intern(first);
+        assertTrue(registry.getBytesSaved() < 0, "a lone minimal FSM keeps its table and labels");
+        assertSame(shared, registry.intern(second));
+        assertSame(shared, ((FiniteStateMachine) first).getSharedMachine());
+        assertSame(shared, ((FiniteStateMachine) second).getSharedMachine());
+        assertEquals("eooe", second.interpret("abab"));
+        assertEquals(9, second.getFinalState("aab"));
+        assertEquals(40, second.getFinalState("bb"));
+        IFiniteStateMachine redundant = factory.makeFiniteStateMachine();
+        redundant.addTransition(factory.makeTransition(5, 'a', 'x', 6));
+        redundant.addTransition(factory.makeTransition(6, 'a', 'x', 5));
+        assertSame(registry.intern(redundant), ((FiniteStateMachine) redundant).getSharedMachine());
+        assertEquals(6, redundant.getFinalState("a"));
+        assertEquals(5, redundant.getFinalState("aaaa"));
+        assertEquals(1, assertThrows(BadInputException.class, () -> redundant.getFinalState("ab")).getOffset());
+        second.setPartial(true);
+        second.addTransition(factory.makeTransition(40, 'c', 'e', 40));
+        assertNull(((FiniteStateMachine) second).getSharedMachine());
+        assertEquals("eee", second.interpret("aac"));
+        assertEquals(40, second.getFinalState("bbc"));
+    }
+
+    /**
+     * Checks that a canonical machine is kept while an interned FSM runs on it, and is collected once nothing uses it.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     * @throws InterruptedException should not be thrown during this test
+     */
+    @Test
+    public void unusedCanonicalMachinesAreCollected() throws BadTableException, NDTransitionException, InterruptedException {
+        IFiniteStateMachine kept = twoStateMachine(1, 2);
+        registry.intern(kept);
+        registry.intern(twoStateMachine(3, 4).compile());
+        assertEquals(1, registry.getUniqueCount());
+        collect(1);
+        assertEquals(1, registry.getUniqueCount());
+        assertNotNull(((FiniteStateMachine) kept).getSharedMachine());
+        kept = null;
+        collect(0);
+        assertEquals(0, registry.getUniqueCount());
+    }
+
+    /**
+     * Requests garbage collection until the registry holds the given number of canonical machines, or gives up.
+     * @param unique the number of canonical machines to wait for
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void collect(int unique) throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && registry.getUniqueCount() != unique; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        System.gc();
+    }
+
+    /**
+     * Checks that machines with different behaviour are not shared.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void differentMachinesAreNotShared() throws BadTableException, NDTransitionException {
+        IFiniteStateMachine other = factory.makeFiniteStateMachine();
+        other.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        other.addTransition(factory.makeTransition(1, 'b', 'o', 1));
+        assertNotSame(registry.intern(twoStateMachine(1, 2)), registry.intern(other));
+        assertEquals(0, registry.getSharedCount());
+        assertEquals(2, registry.getUniqueCount());
+    }
+
+    /**
+     * Checks that each state of a partial machine is given a row representation suited to how many inputs it handles,
+     * and that every representation finds the right transitions.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void representationFollowsRowDensity() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.setPartial(true);
+        for (char input = 'a'; input <= 'z'; input++) {
+            fsm.addTransition(factory.makeTransition(0, input, Character.toUpperCase(input), input < 'm' ? 1 : 2));
+        }
+        for (char input = '0'; input <= '9'; input++) {
+            fsm.addTransition(factory.makeTransition(0, input, input, 0));
+        }
+        fsm.addTransition(factory.makeTransition(1, 'a', '1', 0));
+        fsm.addTransition(factory.makeTransition(1, 'q', '2', 2));
+        for (char input = 'c'; input <= 'x'; input += 2) {
+            fsm.addTransition(factory.makeTransition(2, input, input, 0));
+        }
+        CompiledMachine machine = (CompiledMachine) fsm.compile();
+        assertEquals(1, machine.getRowCount(CompiledMachine.Representation.DIRECT));
+        assertEquals(1, machine.getRowCount(CompiledMachine.Representation.SORTED));
+        assertEquals(1, machine.getRowCount(CompiledMachine.Representation.HASH));
+        assertEquals("B1A2qZw", machine.interpret("baaqqzw"));
+        assertEquals(-1, machine.getNextState(machine.getNextState(0, 'a'), 'b'));
+        assertEquals(-1, machine.getNextState(machine.getNextState(0, 'z'), 'd'));
+        assertEquals(3, assertThrows(BadInputException.class, () -> fsm.interpret("bazd")).getOffset());
+    }
+
+    /**
+     * Checks that a state too sparse for a direct row is still given one when no perfect hash row would be smaller.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void directRowWhenHashRowIsNoSmaller() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.setPartial(true);
+        for (char input = 'A'; input < 'A' + 40; input++) {
+            fsm.addTransition(factory.makeTransition(0, input, input, input < 'A' + 19 ? 1 : 0));
+        }
+        for (char input = 'A'; input < 'A' + 19; input++) {
+            fsm.addTransition(factory.makeTransition(1, input, Character.toLowerCase(input), 0));
+        }
+        CompiledMachine machine = (CompiledMachine) fsm.compile();
+        assertEquals(CompiledMachine.Representation.DIRECT, machine.getRepresentation(1));
+        assertEquals(0, machine.getRowCount(CompiledMachine.Representation.HASH));
+        assertEquals(2 * (1 + 4 + 4 + 4 + 10 * 40), machine.getRowFootprint(CompiledMachine.Representation.DIRECT));
+        assertEquals("AbZ", machine.interpret("ABZ"));
+        assertEquals(-1, machine.getNextState(1, 'Z'));
+    }
+
+    /**
+     * Checks that missing inputs are only accepted from a partial FSM.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void missingInputsNeedPartialFSM() throws NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'x', 2));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'y', 1));
+        assertThrows(BadTableException.class, () -> fsm.compile());
+        fsm.setPartial(true);
+        assertThrows(BadInputException.class, () -> fsm.interpret("aa"));
+    }
+
+    /**
+     * Checks that interning an FSM with a bad transition table is rejected.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void internBadTable() throws NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'e', 3));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'e', 1));
+        assertThrows(BadTableException.class, () -> registry.intern(fsm));
+    }
+
+    /**
+     * Checks that batch interpretation only steps through the characters after the prefix shared with the previous
+     * word in sorted order.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void batchSkipsSharedPrefixes() throws BadTableException, NDTransitionException {
+        ICompiledMachine machine = twoStateMachine(1, 2).compile();
+        String[] inputs = {"abab", "abba", "ab", "abbab", "abab", "acab", "acbb"};
+        String[] outputs = new String[inputs.length];
+        assertEquals(2 + 2 + 0 + 2 + 1, machine.interpret(inputs, outputs));
+        assertEquals("eooe", outputs[0]);
+        assertEquals("eooe", outputs[4]);
+        assertEquals("eo", outputs[2]);
+        assertEquals("eoeeo", outputs[3]);
+        assertNull(outputs[5]);
+        assertNull(outputs[6]);
+    }
+
+    /**
+     * Checks that a batch is interpreted one word at a time, with the same outputs, when asked to, and in adaptive
+     * mode when it is out of order over a machine whose rows are direct or when its words share too little to repay
+     * comparing them, while an adaptive batch in order with enough sharing still skips shared prefixes.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void batchModes() throws BadTableException, NDTransitionException {
+        ICompiledMachine machine = twoStateMachine(1, 2).compile();
+        String[] inputs = {"abab", "abba", "ab", "abbab", "abab", "acab", "acbb"};
+        for (BatchMode mode : new BatchMode[] {BatchMode.EACH_WORD, BatchMode.ADAPTIVE}) {
+            String[] outputs = new String[inputs.length];
+            assertEquals(4 + 4 + 2 + 5 + 4 + 1 + 1, machine.interpret(inputs, outputs, mode));
+            assertEquals("eooe", outputs[0]);
+            assertEquals("eooe", outputs[4]);
+            assertEquals("eo", outputs[2]);
+            assertEquals("eoeeo", outputs[3]);
+            assertNull(outputs[5]);
+            assertNull(outputs[6]);
+        }
+        String[] outputs = new String[inputs.length];
+        String[] distinct = {"aab", "bab", "bba"};
+        assertEquals(9, machine.interpret(distinct, outputs, BatchMode.ADAPTIVE));
+        assertEquals("eeo", outputs[0]);
+        assertEquals("oee", outputs[2]);
+        assertEquals(8, machine.interpret(distinct, outputs));
+        String[] sorted = {"ab", "abab", "abab", "abba", "abbab", "acab", "acbb"};
+        assertEquals(2 + 2 + 0 + 2 + 1, machine.interpret(sorted, outputs, BatchMode.ADAPTIVE));
+    }
+
+}
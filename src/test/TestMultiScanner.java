@@ -0,0 +1,154 @@
+package test;
+
+import bench.RandomMachineGenerator;
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import interfaces.ICompiledMachine;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IMultiScanner;
+import interfaces.ITransition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for running many FSMs over the same input in a single pass.
+ */
+public class TestMultiScanner {
+
+
+    private IFactory factory;
+
+
+    /**
+     * JUnit setup method to run before every other test.
+     */
+    @BeforeEach
+    public void setup() {
+        factory = Factory.getInstance();
+    }
+
+    /**
+     * Builds a partial FSM which copies 'a's and 'b's but only accepts up to the given number of 'b's.
+     * @param first the number of the initial state
+     * @param limit the number of 'b's accepted
+     * @return the FSM
+     * @throws NDTransitionException should not be thrown
+     */
+    private IFiniteStateMachine limitedMachine(int first, int limit) throws NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.setPartial(true);
+        for (int state = first; state <= first + limit; state++) {
+            fsm.addTransition(factory.makeTransition(state, 'a', 'a', state));
+            if (state < first + limit) {
+                fsm.addTransition(factory.makeTransition(state, 'b', 'b', state + 1));
+            }
+        }
+        return fsm;
+    }
+
+    /**
+     * This checks that the factory was able to call a sensible constructor to get a non-null instance of IMultiScanner.
+     * @throws BadTableException should not be thrown during this test
+     */
+    @Test
+    public void multiScannerCreationNonNull() throws BadTableException {
+        assertNotNull(factory.makeMultiScanner(List.of()));
+    }
+
+    /**
+     * Checks that machines are dropped individually at their own bad input, and that machines numbered differently
+     * but equal after minimization are run once.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void machinesDroppedIndividually() throws BadTableException, NDTransitionException {
+        IMultiScanner scanner = factory.makeMultiScanner(List.of(limitedMachine(0, 1), limitedMachine(5, 3),
+                limitedMachine(10, 1), limitedMachine(20, 2)));
+        assertEquals(4, scanner.getMachineCount());
+        assertEquals(3, scanner.getDistinctCount());
+        long[] offsets = new long[4];
+        assertArrayEquals(new String[] {null, "abab", null, "abab"}, scanner.interpret("abab", offsets));
+        assertArrayEquals(new long[] {3, -1, 3, -1}, offsets);
+        assertArrayEquals(new String[] {null, null, null, null}, scanner.interpret("abbcab", offsets));
+        assertArrayEquals(new long[] {2, 3, 2, 3}, offsets);
+        assertArrayEquals(new String[] {"", "", "", ""}, scanner.interpret(""));
+        assertThrows(IllegalArgumentException.class, () -> scanner.interpret("a", new long[3]));
+        assertArrayEquals(new String[0], factory.makeMultiScanner(List.of()).interpret("ab"));
+        IMultiScanner merged = factory.makeMultiScanner(List.of(limitedMachine(0, 1), limitedMachine(10, 1)));
+        assertEquals(1, merged.getDistinctCount());
+        assertArrayEquals(new String[] {"ab", "ab"}, merged.interpret("ab", offsets));
+        assertArrayEquals(new String[] {null, null}, merged.interpret("abb", offsets));
+        assertEquals(2, offsets[1]);
+    }
+
+    /**
+     * Checks that the outputs and failure offsets of random machines match interpreting with each machine alone,
+     * over input long enough to span several chunks.
+     * @throws BadTableException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void matchesSeparateInterpretation() throws BadTableException, NDTransitionException {
+        RandomMachineGenerator generator = new RandomMachineGenerator(11);
+        List<IFiniteStateMachine> fsms = new ArrayList<>();
+        List<ITransition> walked = null;
+        for (int i = 0; i < 12; i++) {
+            List<ITransition> transitions = generator.generate(8 + i, 4, 'a', i % 3 == 0 ? 1.0 : 0.97);
+            walked = walked == null ? transitions : walked;
+            IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+            fsm.setPartial(true);
+            for (ITransition transition : transitions) {
+                fsm.addTransition(transition);
+            }
+            fsms.add(fsm);
+            fsms.add(fsm);
+        }
+        IMultiScanner scanner = factory.makeMultiScanner(fsms);
+        assertEquals(12, scanner.getDistinctCount());
+        for (int length : new int[] {1, 100, 5000}) {
+            String input = generator.walk(walked, length, 0.0);
+            long[] offsets = new long[fsms.size()];
+            String[] outputs = scanner.interpret(input, offsets);
+            for (int i = 0; i < fsms.size(); i++) {
+                try {
+                    assertEquals(fsms.get(i).interpret(input), outputs[i]);
+                    assertEquals(-1, offsets[i]);
+                } catch (BadInputException e) {
+                    assertEquals(null, outputs[i]);
+                    assertEquals(e.getOffset(), offsets[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that an FSM which compiles to some other ICompiledMachine is rejected with a clear exception rather than
+     * a ClassCastException.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void foreignCompiledMachineRejected() throws NDTransitionException {
+        ICompiledMachine foreign = (ICompiledMachine) Proxy.newProxyInstance(ICompiledMachine.class.getClassLoader(),
+                new Class<?>[] {ICompiledMachine.class}, (proxy, method, args) -> method.getName().equals("minimize") ? proxy : null);
+        IFiniteStateMachine fsm = (IFiniteStateMachine) Proxy.newProxyInstance(IFiniteStateMachine.class.getClassLoader(),
+                new Class<?>[] {IFiniteStateMachine.class}, (proxy, method, args) -> method.getName().equals("compile") ? foreign : null);
+        List<IFiniteStateMachine> fsms = List.of(limitedMachine(1, 2), fsm);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> factory.makeMultiScanner(fsms));
+        assertTrue(e.getMessage().startsWith("FSM 1 "), e.getMessage());
+    }
+
+}
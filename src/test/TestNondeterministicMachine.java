@@ -0,0 +1,127 @@
+package test;
+
+import exceptions.BadInputException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.INondeterministicMachine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This is a JUnit test class for the nondeterministic FSM ADT.
+ */
+public class TestNondeterministicMachine {
+
+
+    private IFactory factory;
+    private INondeterministicMachine nfa;
+
+
+    /**
+     * JUnit setup method to run before every other test.
+     */
+    @BeforeEach
+    public void setup() {
+        factory = Factory.getInstance();
+        nfa = factory.makeNondeterministicMachine();
+    }
+
+    /**
+     * This checks that the factory was able to call a sensible constructor to get a non-null instance of INondeterministicMachine.
+     */
+    @Test
+    public void nfaCreationNonNull() {
+        assertNotNull(nfa);
+    }
+
+    /**
+     * Checks that a deterministic machine gives the same output as it would in a FiniteStateMachine.
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void deterministicMachineWorks() throws BadInputException, NDTransitionException {
+        nfa.addTransition(factory.makeTransition(1, 'a', 'e', 1));
+        nfa.addTransition(factory.makeTransition(1, 'b', 'o', 2));
+        nfa.addTransition(factory.makeTransition(2, 'a', 'o', 2));
+        nfa.addTransition(factory.makeTransition(2, 'b', 'e', 1));
+        assertEquals("eoo", nfa.interpret("aba"));
+        assertEquals(Set.of("eoo"), nfa.interpretAll("aba"));
+        assertArrayEquals(new int[] {2}, nfa.getFinalStates("aba"));
+    }
+
+    /**
+     * Checks that a second transition for the same state and input is accepted and both paths are followed.
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void duplicateInputFollowsBothPaths() throws BadInputException, NDTransitionException {
+        nfa.addTransition(factory.makeTransition(1, 'a', 'x', 1));
+        nfa.addTransition(factory.makeTransition(1, 'a', 'y', 2));
+        nfa.addTransition(factory.makeTransition(2, 'b', 'z', 2));
+        assertArrayEquals(new int[] {1, 2}, nfa.getFinalStates("aa"));
+        assertEquals(Set.of("xx", "xy"), nfa.interpretAll("aa"));
+        assertEquals("xx", nfa.interpret("aa"));
+    }
+
+    /**
+     * Checks that the chosen path skips an earlier transition which cannot consume the rest of the input.
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void chosenPathAvoidsDeadEnds() throws BadInputException, NDTransitionException {
+        nfa.addTransition(factory.makeTransition(1, 'a', 'x', 1));
+        nfa.addTransition(factory.makeTransition(1, 'a', 'y', 2));
+        nfa.addTransition(factory.makeTransition(2, 'b', 'z', 2));
+        assertEquals("xyz", nfa.interpret("aab"));
+        assertEquals(Set.of("xyz"), nfa.interpretAll("aab"));
+    }
+
+    /**
+     * Checks that a machine with more than 64 states is stepped correctly across bitset words.
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void manyStatesWork() throws BadInputException, NDTransitionException {
+        for (int state = 0; state < 200; state++) {
+            nfa.addTransition(factory.makeTransition(state, 'a', 'a', (state + 1) % 200));
+            nfa.addTransition(factory.makeTransition(state, 'a', 'b', (state + 7) % 200));
+        }
+        assertArrayEquals(new int[] {3, 9, 15, 21}, nfa.getFinalStates("aaa"));
+        assertEquals("aaa", nfa.interpret("aaa"));
+        assertEquals(8, nfa.interpretAll("aaa").size());
+    }
+
+    /**
+     * Checks that input which no path can consume is reported with its offset.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void badInputReportsOffset() throws NDTransitionException {
+        nfa.addTransition(factory.makeTransition(1, 'a', 'x', 1));
+        nfa.addTransition(factory.makeTransition(1, 'a', 'y', 2));
+        nfa.addTransition(factory.makeTransition(2, 'b', 'z', 2));
+        assertEquals(3, assertThrows(BadInputException.class, () -> nfa.interpret("aabc")).getOffset());
+        assertEquals(2, assertThrows(BadInputException.class, () -> nfa.getFinalStates("aba")).getOffset());
+    }
+
+    /**
+     * Checks whether a null transition can be added.
+     */
+    @Test
+    public void addNullTransition() {
+        assertThrows(NDTransitionException.class, () -> nfa.addTransition(null));
+    }
+
+}
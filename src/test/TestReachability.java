@@ -0,0 +1,124 @@
+package test;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import impl.Reachability;
+import interfaces.ICompiledMachine;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.ITransition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a JUnit test class for the reachability analysis and reachable-only validation.
+ */
+public class TestReachability {
+
+
+    private IFactory factory;
+    private List<ITransition> transitions;
+
+
+    /**
+     * JUnit setup method to run before every other test. States 3 and 4 cannot be reached from state 1.
+     */
+    @BeforeEach
+    public void setup() {
+        factory = Factory.getInstance();
+        transitions = List.of(
+                factory.makeTransition(1, 'b', 'x', 5),
+                factory.makeTransition(1, 'a', 'x', 2),
+                factory.makeTransition(2, 'a', 'y', 1),
+                factory.makeTransition(3, 'a', 'z', 1),
+                factory.makeTransition(3, 'c', 'z', 4),
+                factory.makeTransition(4, 'a', 'z', 4));
+    }
+
+    /**
+     * Checks that the reachable states are found in breadth-first order, following inputs in ascending order.
+     */
+    @Test
+    public void reachableStatesInBreadthFirstOrder() {
+        Reachability reachability = Reachability.analyse(transitions, 1);
+        assertArrayEquals(new int[] {1, 2, 5}, reachability.getReachableStates());
+        assertEquals(0, reachability.indexOf(1));
+        assertEquals(2, reachability.indexOf(5));
+        assertEquals(-1, reachability.indexOf(3));
+        assertEquals(-1, reachability.indexOf(99));
+        assertTrue(reachability.isReachable(2));
+        assertFalse(reachability.isReachable(4));
+    }
+
+    /**
+     * Checks that the pruning statistics count the unreachable states and their transitions.
+     */
+    @Test
+    public void pruningStatistics() {
+        Reachability reachability = Reachability.analyse(transitions, 1);
+        assertEquals(5, reachability.getStateCount());
+        assertEquals(3, reachability.getReachableStateCount());
+        assertEquals(2, reachability.getPrunedStateCount());
+        assertEquals(3, reachability.getPrunedTransitionCount());
+    }
+
+    /**
+     * Checks that an FSM with no transitions has only its initial state.
+     */
+    @Test
+    public void emptyTransitions() {
+        Reachability reachability = Reachability.analyse(List.of(), 0);
+        assertArrayEquals(new int[] {0}, reachability.getReachableStates());
+        assertEquals(0, reachability.getPrunedStateCount());
+    }
+
+    /**
+     * Checks that missing inputs in unreachable states are only ignored when validating reachable states only, and
+     * that the compiled machine reports what was pruned.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void validateReachableOnly() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'x', 2));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'y', 1));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'y', 1));
+        fsm.addTransition(factory.makeTransition(2, 'b', 'x', 2));
+        fsm.addTransition(factory.makeTransition(3, 'c', 'z', 7));
+        assertThrows(BadTableException.class, () -> fsm.interpret("ab"));
+        fsm.setValidateReachableOnly(true);
+        assertEquals("xx", fsm.interpret("ab"));
+        ICompiledMachine machine = fsm.compile();
+        assertEquals(2, machine.getStateCount());
+        assertEquals(2, machine.getPrunedStateCount());
+        assertEquals(1, machine.getPrunedTransitionCount());
+        assertArrayEquals(new char[] {'a', 'b'}, machine.getAlphabet());
+    }
+
+    /**
+     * Checks that reachable states are still validated when validating reachable states only.
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void reachableStatesStillValidated() throws NDTransitionException {
+        IFiniteStateMachine fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(1, 'a', 'x', 2));
+        fsm.addTransition(factory.makeTransition(1, 'b', 'y', 1));
+        fsm.addTransition(factory.makeTransition(2, 'a', 'y', 1));
+        fsm.setValidateReachableOnly(true);
+        assertThrows(BadTableException.class, () -> fsm.compile());
+    }
+
+}
@@ -0,0 +1,133 @@
+package test;
+
+import exceptions.BadInputException;
+import exceptions.BadTableException;
+import exceptions.NDTransitionException;
+import impl.Factory;
+import interfaces.IFactory;
+import interfaces.IFiniteStateMachine;
+import interfaces.IRunInterpreter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This is a JUnit test class for interpreting run-length encoded input.
+ */
+public class TestRunInterpreter {
+
+
+    private IFactory factory;
+    private IFiniteStateMachine fsm;
+
+
+    /**
+     * JUnit setup method to run before every other test. The FSM counts 'a's modulo 3, outputting the count, and
+     * outputs 'x' and returns to the initial state on 'b'.
+     * @throws NDTransitionException should not be thrown
+     */
+    @BeforeEach
+    public void setup() throws NDTransitionException {
+        factory = Factory.getInstance();
+        fsm = factory.makeFiniteStateMachine();
+        fsm.addTransition(factory.makeTransition(10, 'a', '1', 11));
+        fsm.addTransition(factory.makeTransition(11, 'a', '2', 12));
+        fsm.addTransition(factory.makeTransition(12, 'a', '0', 10));
+        fsm.addTransition(factory.makeTransition(10, 'b', 'x', 10));
+        fsm.addTransition(factory.makeTransition(11, 'b', 'x', 10));
+        fsm.addTransition(factory.makeTransition(12, 'b', 'x', 10));
+    }
+
+    /**
+     * This checks that the factory was able to call a sensible constructor to get a non-null instance of IRunInterpreter.
+     * @throws BadTableException should not be thrown during this test
+     */
+    @Test
+    public void runInterpreterCreationNonNull() throws BadTableException {
+        assertNotNull(factory.makeRunInterpreter(fsm));
+    }
+
+    /**
+     * Checks that runs both shorter and longer than the number of states give the same state and output as
+     * interpreting the expanded input.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     */
+    @Test
+    public void runsMatchExpandedInput() throws BadTableException, BadInputException {
+        IRunInterpreter runs = factory.makeRunInterpreter(fsm);
+        runs.addRun('a', 2);
+        runs.addRun("ab", 0);
+        runs.addRun("aab", 5);
+        runs.addRun('a', 7);
+        runs.addRun("", 9);
+        runs.addRun("ba", 1);
+        String input = "aa" + "aab".repeat(5) + "a".repeat(7) + "ba";
+        assertEquals(input.length(), runs.getLength());
+        assertEquals(fsm.getFinalState(input), runs.getState());
+        String output = fsm.interpret(input);
+        assertEquals(output, runs.getOutput());
+        for (int offset = 0; offset < input.length(); offset++) {
+            for (int length = 0; offset + length <= input.length(); length += 5) {
+                assertEquals(output.substring(offset, offset + length), runs.getOutput(offset, length));
+            }
+        }
+    }
+
+    /**
+     * Checks that a run of a billion characters is interpreted without stepping through it, and that output near its
+     * end can be expanded.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     */
+    @Test
+    public void billionCharacterRun() throws BadTableException, BadInputException {
+        IRunInterpreter runs = factory.makeRunInterpreter(fsm);
+        runs.addRun('b', 1);
+        runs.addRun('a', 1_000_000_000L);
+        runs.addRun("aab", 3_000_000_000L);
+        assertEquals(10_000_000_001L, runs.getLength());
+        assertEquals(10, runs.getState());
+        assertEquals("012012", runs.getOutput(999_999_996L, 6));
+        assertEquals("12x", runs.getOutput(runs.getLength() - 3, 3));
+        assertThrows(IllegalStateException.class, () -> runs.getOutput());
+        runs.reset();
+        assertEquals(0, runs.getLength());
+        assertEquals(10, runs.getState());
+        assertEquals("", runs.getOutput());
+    }
+
+    /**
+     * Checks that a run reaching a character without a transition reports its offset and is not added, whether it is
+     * stepped through or skipped with repetition tables.
+     * @throws BadTableException should not be thrown during this test
+     * @throws BadInputException should not be thrown during this test
+     * @throws NDTransitionException should not be thrown during this test
+     */
+    @Test
+    public void badInputInRun() throws BadTableException, BadInputException, NDTransitionException {
+        IFiniteStateMachine chain = factory.makeFiniteStateMachine();
+        chain.setPartial(true);
+        for (int state = 0; state < 4; state++) {
+            chain.addTransition(factory.makeTransition(state, 'a', 'a', state + 1));
+            chain.addTransition(factory.makeTransition(state, 'b', 'b', state));
+        }
+        chain.addTransition(factory.makeTransition(4, 'b', 'b', 0));
+        IRunInterpreter runs = factory.makeRunInterpreter(chain);
+        runs.addRun('b', 3);
+        assertEquals(7, assertThrows(BadInputException.class, () -> runs.addRun('a', 1_000_000)).getOffset());
+        assertEquals(3, runs.getLength());
+        assertEquals(0, runs.getState());
+        assertEquals(8, assertThrows(BadInputException.class, () -> runs.addRun("aaab", 2)).getOffset());
+        assertEquals(8, assertThrows(BadInputException.class, () -> runs.addRun("aaba", 5)).getOffset());
+        runs.addRun("baa", 1_000_000);
+        assertEquals(4, runs.getState());
+        assertEquals(3_000_003, assertThrows(BadInputException.class, () -> runs.addRun('a', 1)).getOffset());
+        assertThrows(IllegalArgumentException.class, () -> runs.addRun('a', -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> runs.getOutput(runs.getLength() - 1, 2));
+    }
+
+}
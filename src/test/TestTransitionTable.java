@@ -200,6 +200,30 @@ public class TestTransitionTable {
         assertFalse(transitionTable.hasMissingInputs());
     }
 
+    /**
+     * This checks that every transition of a table large enough to grow its index several times, including states
+     * with negative numbers, can still be looked up, and that duplicates are still rejected.
+     * @throws NDTransitionException if a transition already exists, which should not happen in this test
+     * @throws BadInputException if a transition cannot be found, which should not happen in this test
+     */
+    @Test
+    public void transitionTableLookupAfterGrowth() throws NDTransitionException, BadInputException {
+        for (int state = -50; state < 50; state++) {
+            for (char input = 'a'; input < 'k'; input++) {
+                transitionTable.addTransition(new Transition(state, input, input, state + 1));
+            }
+        }
+        for (int state = -50; state < 50; state++) {
+            for (char input = 'a'; input < 'k'; input++) {
+                assertTrue(transitionTable.getTransition(state, input).getNextState() == state + 1);
+            }
+        }
+        assertThrows(NDTransitionException.class, () -> transitionTable.addTransition(new Transition(-7, 'c', 'x', 0)));
+        assertThrows(BadInputException.class, () -> transitionTable.getTransition(50, 'a'));
+        assertThrows(BadInputException.class, () -> transitionTable.getTransition(0, 'k'));
+        assertFalse(transitionTable.hasMissingInputs());
+    }
+
 
 
 }